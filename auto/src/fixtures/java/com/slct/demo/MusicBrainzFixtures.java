@@ -0,0 +1,83 @@
+package com.slct.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+// Builds MusicBrainz recording search responses with the same shape as the real API
+// (recordings with artist credits, releases, release groups, media and tags), so the
+// benchmarks don't depend on network access. The seed keeps every run identical.
+final class MusicBrainzFixtures {
+
+    private static final String[] RELEASE_TITLES = {
+        "Nevermind", "In Utero", "Bleach", "Incesticide", "MTV Unplugged in New York",
+        "Live at Reading", "From the Muddy Banks of the Wishkah", "Nirvana", "Greatest Hits",
+        "With the Lights Out", "Sliver: The Best of the Box", "Live in Concert 1992", "Tour Edition"
+    };
+    private static final String[] DATES = { "1991-09-24", "1991", "1992-11", "1993-09-21", "2002-10-29", "1994", "" };
+    private static final String[] TAGS = { "grunge", "rock", "alternative rock", "punk", "90s" };
+
+    private MusicBrainzFixtures() {
+    }
+
+    static byte[] response(int recordings, int releasesPerRecording) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(recordings * releasesPerRecording * 600);
+        json.append("{\"created\":\"2025-01-01T00:00:00.000Z\",\"count\":").append(recordings)
+            .append(",\"offset\":0,\"recordings\":[");
+
+        for (int r = 0; r < recordings; r++) {
+            if (r > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(uuid(random)).append("\",\"score\":").append(100 - r)
+                .append(",\"title\":\"Smells Like Teen Spirit\"");
+            if (random.nextInt(5) != 0) {
+                json.append(",\"length\":").append(280_000 + random.nextInt(40_000));
+            }
+            json.append(",\"video\":null,\"artist-credit\":[{\"name\":\"Nirvana\",\"artist\":{\"id\":\"")
+                .append(uuid(random)).append("\",\"name\":\"Nirvana\",\"sort-name\":\"Nirvana\"}}]")
+                .append(",\"first-release-date\":\"1991-09-10\",\"releases\":[");
+
+            for (int i = 0; i < releasesPerRecording; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                String date = DATES[random.nextInt(DATES.length)];
+                json.append("{\"id\":\"").append(uuid(random)).append("\",\"status-id\":\"").append(uuid(random))
+                    .append("\",\"count\":1,\"title\":\"").append(RELEASE_TITLES[random.nextInt(RELEASE_TITLES.length)])
+                    .append("\",\"status\":\"Official\",\"release-group\":{\"id\":\"").append(uuid(random))
+                    .append("\",\"type-id\":\"").append(uuid(random))
+                    .append("\",\"primary-type\":\"Album\",\"secondary-types\":[\"Compilation\"]}");
+                if (!date.isEmpty()) {
+                    json.append(",\"date\":\"").append(date).append('"');
+                }
+                json.append(",\"country\":\"US\",\"track-count\":13,\"media\":[{\"position\":1,\"format\":\"CD\",")
+                    .append("\"track\":[{\"id\":\"").append(uuid(random))
+                    .append("\",\"number\":\"1\",\"title\":\"Smells Like Teen Spirit\",\"length\":301000}],")
+                    .append("\"track-count\":13,\"track-offset\":0}]}");
+            }
+            json.append(']');
+
+            if (random.nextInt(3) == 0) {
+                json.append(",\"tags\":[");
+                int tags = 1 + random.nextInt(TAGS.length);
+                for (int t = 0; t < tags; t++) {
+                    if (t > 0) {
+                        json.append(',');
+                    }
+                    json.append("{\"count\":").append(1 + random.nextInt(10)).append(",\"name\":\"").append(TAGS[t]).append("\"}");
+                }
+                json.append(']');
+            }
+            json.append(",\"isrcs\":[\"USGF19942501\"]}");
+        }
+
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String uuid(Random random) {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.slct.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class ExtractYearBenchmark {
+
+    @Param({ "1991", "1991-09", "1991-09-24", "unknown" })
+    public String date;
+
+    @Benchmark
+    public int extractYear() {
+        return RecordingRanker.extractYear(date);
+    }
+}
@@ -0,0 +1,36 @@
+package com.slct.demo;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.slct.demo.MusicBrainzResponseParser.RecordingMatch;
+
+// Recording/release selection over MusicBrainz responses of increasing size
+@State(Scope.Benchmark)
+public class RecordingSelectionBenchmark {
+
+    // recordings x releases per recording
+    @Param({ "1x3", "5x10", "20x25" })
+    public String size;
+
+    private MusicBrainzResponseParser parser;
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        String[] parts = size.split("x");
+        parser = new MusicBrainzResponseParser(new JsonFactory());
+        response = MusicBrainzFixtures.response(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    @Benchmark
+    public RecordingMatch selectRecording() throws IOException {
+        return parser.parse(response);
+    }
+}
@@ -0,0 +1,51 @@
+package com.slct.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+
+// Span attributes recorded by SongService.saveSong for every saved song: the previous
+// builder with raw string keys against the generated typed keys
+@State(Scope.Benchmark)
+public class SongAttributesBenchmark {
+
+    public String title = "Smells Like Teen Spirit";
+    public String artist = "Nirvana";
+    public String album = "Nevermind";
+    public Integer year = 1991;
+    public Integer durationMs = 301000;
+    public String genre = "grunge";
+
+    @Benchmark
+    public Attributes rawStringKeys() {
+        return Attributes.builder()
+            .put("media.song.name", title)
+            .put("media.artist.name", artist)
+            .put("media.album.name", album != null ? album : "Unknown")
+            .put("media.song.year", year != null ? year : 0)
+            .put("media.song.duration_ms", durationMs != null ? durationMs : 0)
+            .put("media.song.genre", genre != null ? genre : "Unknown")
+            .build();
+    }
+
+    @Benchmark
+    public Attributes typedKeys() {
+        return Attributes.builder()
+            .put(dev.jcosta.semconv.Attributes.MEDIA_SONG_NAME_KEY, title)
+            .put(dev.jcosta.semconv.Attributes.MEDIA_ARTIST_NAME_KEY, artist)
+            .put(dev.jcosta.semconv.Attributes.MEDIA_ALBUM_NAME_KEY, album != null ? album : "Unknown")
+            .put(dev.jcosta.semconv.Attributes.MEDIA_SONG_YEAR_KEY, (long) (year != null ? year : 0))
+            .put(dev.jcosta.semconv.Attributes.MEDIA_SONG_DURATION_MS_KEY, (long) (durationMs != null ? durationMs : 0))
+            .put(dev.jcosta.semconv.Attributes.MEDIA_SONG_GENRE_KEY, genre != null ? genre : "Unknown")
+            .build();
+    }
+
+    // What saveSong costs when the current span is not sampled
+    @Benchmark
+    public void notRecording() {
+        SongService.recordSongAttributes(Span.getInvalid(), title, artist, album, year, durationMs, genre);
+    }
+}
@@ -0,0 +1,36 @@
+package com.slct.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Response serialization: the previous String.format body, the SongJson encoder and the
+// cache-hit path that reuses the bytes already stored on the Song
+@State(Scope.Benchmark)
+public class SongJsonBenchmark {
+
+    private Song song;
+
+    @Setup
+    public void setUp() {
+        song = new Song("Smells Like Teen Spirit", "Nirvana", "Nevermind", 1991, 301000, "grunge");
+        song.toJson();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("{\"title\":\"%s\",\"artist\":\"%s\",\"album\":\"%s\",\"year\":%s,\"duration_ms\":%s,\"genre\":\"%s\"}",
+            song.getTitle(), song.getArtist(), song.getAlbum(), song.getYear(), song.getDurationMs(), song.getGenre());
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SongJson.encode(song);
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return song.toJson();
+    }
+}
@@ -0,0 +1,102 @@
+package com.slct.demo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Song lookup against an in-memory H2 stand-in for PostgreSQL (MODE=PostgreSQL) with the
+// same table and indexes as songs-db/init-songs-db.sh. Compares the lookup_key probe used
+// by SongRepository with the previous LOWER(title)/LOWER(artist) predicate.
+@State(Scope.Benchmark)
+public class SongLookupBenchmark {
+
+    @Param({ "100000" })
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement byLookupKey;
+    private PreparedStatement byLowerTitleAndArtist;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:songs;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                CREATE TABLE songs (
+                    id BIGSERIAL PRIMARY KEY,
+                    title VARCHAR(255) NOT NULL,
+                    artist VARCHAR(255) NOT NULL,
+                    album VARCHAR(255),
+                    year INT,
+                    duration_ms INT,
+                    genre VARCHAR(255),
+                    lookup_key VARCHAR(511) GENERATED ALWAYS AS (LOWER(title) || CHAR(31) || LOWER(artist)),
+                    cached_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL,
+                    CONSTRAINT unique_title_artist UNIQUE (title, artist),
+                    CONSTRAINT unique_lookup_key UNIQUE (lookup_key)
+                )
+                """);
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO songs (title, artist, album, year, duration_ms, genre) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                String title = "Song " + i;
+                String artist = "Artist " + (i % 5000);
+                insert.setString(1, title);
+                insert.setString(2, artist);
+                insert.setString(3, "Album " + (i % 20000));
+                insert.setInt(4, 1960 + i % 60);
+                insert.setInt(5, 180000 + i % 120000);
+                insert.setString(6, "Rock");
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+
+        byLookupKey = connection.prepareStatement(
+            "SELECT id, title, artist, album, year, duration_ms, genre, cached_at FROM songs WHERE lookup_key = ?");
+        byLowerTitleAndArtist = connection.prepareStatement(
+            "SELECT id, title, artist, album, year, duration_ms, genre, cached_at FROM songs WHERE LOWER(title) = LOWER(?) AND LOWER(artist) = LOWER(?)");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public String lookupKey() throws SQLException {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        byLookupKey.setString(1, SongKey.of("Song " + i, "Artist " + (i % 5000)).lookupKey());
+        return firstTitle(byLookupKey);
+    }
+
+    @Benchmark
+    public String lowerTitleAndArtist() throws SQLException {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        byLowerTitleAndArtist.setString(1, "song " + i);
+        byLowerTitleAndArtist.setString(2, "artist " + (i % 5000));
+        return firstTitle(byLowerTitleAndArtist);
+    }
+
+    private static String firstTitle(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getString("title") : null;
+        }
+    }
+}
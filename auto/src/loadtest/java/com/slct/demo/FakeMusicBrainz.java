@@ -0,0 +1,118 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Stand-in for the MusicBrainz recording search, so the service can be load tested offline.
+// Replays the *.json bodies from mb.responses when given, otherwise synthetic responses of
+// mb.recordings x mb.releases, after mb.latency (+/- mb.latency-jitter). mb.error-rate of
+// the calls get a 503 and mb.not-found-rate an empty result.
+//
+// Standalone: ./gradlew fakeMusicBrainz --args='--mb.port=8099 --mb.latency=200ms'
+public class FakeMusicBrainz {
+
+    static final String PATH = "/ws/2/recording/";
+
+    private static final byte[] NOT_FOUND = "{\"created\":\"2025-01-01T00:00:00.000Z\",\"count\":0,\"offset\":0,\"recordings\":[]}"
+        .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNAVAILABLE = "{\"error\":\"Your requests are exceeding the allowable rate limit.\"}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final List<byte[]> responses;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double errorRate;
+    private final double notFoundRate;
+
+    public FakeMusicBrainz(LoadTestOptions options) throws IOException {
+        this.latencyNanos = options.duration("mb.latency", Duration.ofMillis(50)).toNanos();
+        this.jitterNanos = options.duration("mb.latency-jitter", Duration.ofMillis(20)).toNanos();
+        this.errorRate = options.decimal("mb.error-rate", 0);
+        this.notFoundRate = options.decimal("mb.not-found-rate", 0);
+        this.responses = responses(options);
+
+        this.server = HttpServer.create(new InetSocketAddress("localhost", options.integer("mb.port", 0)), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext(PATH, this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        FakeMusicBrainz fake = new FakeMusicBrainz(LoadTestOptions.parse(args, Map.of("mb.port", "8099")));
+        fake.start();
+        System.out.println("Fake MusicBrainz listening on " + fake.url());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latencyNanos + (jitterNanos > 0 ? random.nextLong(-jitterNanos, jitterNanos + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(Duration.ofNanos(delay));
+            }
+
+            double roll = random.nextDouble();
+            if (roll < errorRate) {
+                send(exchange, 503, UNAVAILABLE);
+            } else if (roll < errorRate + notFoundRate) {
+                send(exchange, 200, NOT_FOUND);
+            } else {
+                send(exchange, 200, responses.get(random.nextInt(responses.size())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static List<byte[]> responses(LoadTestOptions options) throws IOException {
+        List<byte[]> responses = new ArrayList<>();
+        String recorded = options.string("mb.responses", null);
+        if (recorded != null) {
+            try (Stream<Path> files = Files.list(Path.of(recorded))) {
+                for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                    responses.add(Files.readAllBytes(file));
+                }
+            }
+            if (responses.isEmpty()) {
+                throw new IllegalArgumentException("No *.json responses in " + recorded);
+            }
+        } else {
+            responses.add(MusicBrainzFixtures.response(options.integer("mb.recordings", 5), options.integer("mb.releases", 10)));
+        }
+        return responses;
+    }
+}
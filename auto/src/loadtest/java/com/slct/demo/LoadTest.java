@@ -0,0 +1,312 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Open-model load test: requests arrive as a Poisson process at --rate per second whether or
+// not earlier ones have finished, and latency is measured from the planned arrival time, so
+// a stalled service shows up as latency instead of as a slower arrival rate.
+//
+// --hit-ratio of the requests go to --keys known songs picked with Zipf(--zipf) skew, the
+// rest are songs nobody asked for before and go through to MusicBrainz. Unless --target
+// points at a running service, the harness starts the service itself against an embedded
+// FakeMusicBrainz (see its mb.* options) and the PostgreSQL at spring.datasource.url.
+// Options it doesn't know are passed on to the service.
+//
+// ./gradlew loadTest --args='--rate=200 --duration=60s --hit-ratio=0.9 --mb.latency=300ms'
+public class LoadTest {
+
+    private static final AtomicLong missSequence = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args, Map.of());
+        String target = options.string("target", null);
+        double rate = options.decimal("rate", 100);
+        Duration warmup = options.duration("warmup", Duration.ofSeconds(10));
+        Duration duration = options.duration("duration", Duration.ofSeconds(60));
+        int keys = options.integer("keys", 10_000);
+        double hitRatio = options.decimal("hit-ratio", 0.9);
+        double zipf = options.decimal("zipf", 1.0);
+        boolean seed = options.flag("seed", true);
+        int seedConcurrency = options.integer("seed-concurrency", 32);
+        int maxInFlight = options.integer("max-in-flight", 10_000);
+        Duration requestTimeout = options.duration("request-timeout", Duration.ofSeconds(30));
+        String label = options.string("label", "local");
+        Path results = Path.of(options.string("results", "build/results/loadtest/summary.jsonl"));
+
+        FakeMusicBrainz fake = null;
+        ConfigurableApplicationContext service = null;
+        if (target == null) {
+            fake = new FakeMusicBrainz(options);
+            fake.start();
+            service = startService(fake.url(), options.remaining());
+            target = "http://localhost:" + service.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+            Workload workload = new Workload(client, target, requestTimeout, keys, hitRatio, zipf);
+
+            if (seed) {
+                System.out.printf("Seeding %d songs%n", keys);
+                workload.seed(seedConcurrency);
+            }
+            if (!warmup.isZero()) {
+                System.out.printf("Warming up for %s at %.0f req/s%n", warmup, rate);
+                workload.run(rate, warmup, maxInFlight);
+            }
+
+            System.out.printf("Measuring for %s at %.0f req/s against %s%n", duration, rate, target);
+            Result result = workload.run(rate, duration, maxInFlight);
+            String summary = result.toJson(label, rate, hitRatio, zipf, keys);
+            System.out.println(result.describe());
+
+            Files.createDirectories(results.toAbsolutePath().getParent());
+            Files.writeString(results, summary + System.lineSeparator(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            System.out.println("Summary appended to " + results.toAbsolutePath());
+        } finally {
+            if (service != null) {
+                service.close();
+            }
+            if (fake != null) {
+                fake.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startService(String musicServiceUrl, String[] args) {
+        SpringApplication application = new SpringApplication(DemoApplication.class);
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("MUSIC_SERVICE_URL", musicServiceUrl);
+        defaults.put("server.port", 0);
+        defaults.put("spring.jpa.show-sql", false);
+        defaults.put("spring.datasource.url", "jdbc:postgresql://localhost:5432/songs_db");
+        defaults.put("spring.datasource.username", "postgres");
+        defaults.put("spring.datasource.password", "password");
+        // The fake has no published rate limit, so only the adaptive limit and breaker apply
+        defaults.put("music-service.rate-limit.rate", 100_000);
+        defaults.put("music-service.rate-limit.burst", 1_000);
+        application.setDefaultProperties(defaults);
+        return application.run(args);
+    }
+
+    private static final class Workload {
+
+        private final HttpClient client;
+        private final String target;
+        private final Duration requestTimeout;
+        private final int keys;
+        private final double hitRatio;
+        private final double[] zipfCdf;
+
+        private Workload(HttpClient client, String target, Duration requestTimeout, int keys, double hitRatio, double zipf) {
+            this.client = client;
+            this.target = target;
+            this.requestTimeout = requestTimeout;
+            this.keys = keys;
+            this.hitRatio = hitRatio;
+            this.zipfCdf = zipfCdf(keys, zipf);
+        }
+
+        // Requests every known song once, so hits really are hits during the run
+        private void seed(int concurrency) throws InterruptedException {
+            Semaphore permits = new Semaphore(concurrency);
+            AtomicInteger failures = new AtomicInteger();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < keys; i++) {
+                    int key = i;
+                    permits.acquire();
+                    executor.execute(() -> {
+                        try {
+                            if (send(hitUri(key)).statusCode() >= 400) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (IOException | InterruptedException e) {
+                            failures.incrementAndGet();
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+            if (failures.get() > 0) {
+                System.out.printf("%d of %d songs could not be seeded%n", failures.get(), keys);
+            }
+        }
+
+        private Result run(double rate, Duration duration, int maxInFlight) throws InterruptedException {
+            Result result = new Result();
+            SplittableRandom random = new SplittableRandom();
+            Semaphore inFlight = new Semaphore(maxInFlight);
+            double meanGapNanos = 1_000_000_000d / rate;
+
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            double next = start;
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                while (true) {
+                    next += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+                    long planned = (long) next;
+                    if (planned >= end) {
+                        break;
+                    }
+                    long wait = planned - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+
+                    boolean hit = random.nextDouble() < hitRatio;
+                    URI uri = hit ? hitUri(zipfRank(random)) : missUri();
+                    if (!inFlight.tryAcquire()) {
+                        // The service fell so far behind that the harness would run out of memory
+                        result.dropped.incrementAndGet();
+                        continue;
+                    }
+                    executor.execute(() -> {
+                        try {
+                            HttpResponse<byte[]> response = send(uri);
+                            boolean failed = response.statusCode() >= 400 || isErrorBody(response.body());
+                            result.record(planned, failed);
+                        } catch (IOException e) {
+                            result.record(planned, true);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+            result.elapsedNanos = System.nanoTime() - start;
+            return result;
+        }
+
+        private HttpResponse<byte[]> send(URI uri) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET().build();
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        private URI hitUri(int key) {
+            return songUri("Song " + key, "Artist " + (key % 500));
+        }
+
+        private URI missUri() {
+            return songUri("Unseen Song " + missSequence.incrementAndGet() + " " + System.nanoTime(), "Load Artist");
+        }
+
+        private URI songUri(String title, String artist) {
+            return URI.create(target + "/songs/" + encode(title) + "/" + encode(artist));
+        }
+
+        private int zipfRank(SplittableRandom random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = zipfCdf.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (zipfCdf[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static double[] zipfCdf(int keys, double exponent) {
+            double[] cdf = new double[keys];
+            double total = 0;
+            for (int rank = 0; rank < keys; rank++) {
+                total += 1 / Math.pow(rank + 1, exponent);
+                cdf[rank] = total;
+            }
+            for (int rank = 0; rank < keys; rank++) {
+                cdf[rank] /= total;
+            }
+            return cdf;
+        }
+
+        // The service answers MusicBrainz failures with 200 and an {"error": ...} body
+        private static boolean isErrorBody(byte[] body) {
+            return body.length > 9 && body[0] == '{' && body[1] == '"' && body[2] == 'e' && body[3] == 'r'
+                && body[4] == 'r' && body[5] == 'o' && body[6] == 'r' && body[7] == '"';
+        }
+
+        private static String encode(String value) {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+        }
+    }
+
+    private static final class Result {
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private long elapsedNanos;
+
+        private void record(long plannedNanos, boolean failed) {
+            latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - plannedNanos));
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        private double throughput() {
+            return latencies.count() / (elapsedNanos / 1_000_000_000d);
+        }
+
+        private String describe() {
+            return String.format(Locale.ROOT,
+                "requests=%d errors=%d dropped=%d throughput=%.1f req/s p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms",
+                latencies.count(), errors.get(), dropped.get(), throughput(),
+                millis(latencies.percentile(50)), millis(latencies.percentile(99)),
+                millis(latencies.percentile(99.9)), millis(latencies.max()));
+        }
+
+        private String toJson(String label, double rate, double hitRatio, double zipf, int keys) {
+            StringBuilder json = new StringBuilder(256);
+            json.append("{\"label\":");
+            SongJson.appendString(json, label);
+            json.append(String.format(Locale.ROOT,
+                ",\"timestamp\":\"%s\",\"rate\":%.1f,\"hit_ratio\":%.3f,\"zipf\":%.2f,\"keys\":%d"
+                    + ",\"requests\":%d,\"errors\":%d,\"dropped\":%d,\"throughput\":%.1f"
+                    + ",\"p50_ms\":%.3f,\"p99_ms\":%.3f,\"p999_ms\":%.3f,\"max_ms\":%.3f}",
+                Instant.now(), rate, hitRatio, zipf, keys,
+                latencies.count(), errors.get(), dropped.get(), throughput(),
+                millis(latencies.percentile(50)), millis(latencies.percentile(99)),
+                millis(latencies.percentile(99.9)), millis(latencies.max())));
+            return json.toString();
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000d;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.slct.demo;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.convert.DurationStyle;
+
+// --name=value command line options. Options the harness reads are consumed, whatever is
+// left over is handed to the service when the harness starts it.
+final class LoadTestOptions {
+
+    private final Map<String, String> values;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static LoadTestOptions parse(String[] args, Map<String, String> defaults) {
+        Map<String, String> values = new HashMap<>(defaults);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    String string(String name, String defaultValue) {
+        String value = values.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    int integer(String name, int defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    double decimal(String name, double defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    boolean flag(String name, boolean defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    Duration duration(String name, Duration defaultValue) {
+        String value = values.remove(name);
+        return value != null ? DurationStyle.detectAndParse(value) : defaultValue;
+    }
+
+    // Everything not read so far, as Spring Boot command line arguments
+    String[] remaining() {
+        return values.entrySet().stream()
+            .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+            .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,208 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+// Read-only view of a catalog snapshot file written by CatalogSnapshotWriter. The file is
+// memory-mapped, so opening it costs no heap per song and the page cache is shared by every
+// replica on the host; a Song is only materialized when a lookup hits.
+//
+// Layout (big-endian): a header with the format version, the cached_at watermark, the row,
+// dictionary and index sizes and the start of every section, followed by the sections in
+// Section order. Songs are stored column-wise, artist, album and genre as ids into a shared
+// string dictionary, and located through an open-addressing hash index on the lookup key.
+final class CatalogSnapshot {
+
+    static final int MAGIC = 0x534E4753; // "SNGS"
+    static final int FORMAT_VERSION = 1;
+
+    // Stands for a null year, duration or dictionary string
+    static final int NONE = -1;
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    enum Section {
+        IDS(Long.BYTES),
+        CACHED_AT(Long.BYTES),
+        KEY_HASHES(Long.BYTES),
+        TITLE_OFFSETS(Integer.BYTES),
+        ARTISTS(Integer.BYTES),
+        ALBUMS(Integer.BYTES),
+        GENRES(Integer.BYTES),
+        YEARS(Integer.BYTES),
+        DURATIONS(Integer.BYTES),
+        TITLES(1),
+        DICTIONARY_OFFSETS(Integer.BYTES),
+        DICTIONARY(1),
+        INDEX(Integer.BYTES);
+
+        final int width;
+
+        Section(int width) {
+            this.width = width;
+        }
+    }
+
+    // magic, format version, watermark, rows, dictionary size, index slots, section starts, length
+    static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4 + Section.values().length * 8 + 8;
+
+    private final ByteBuffer buffer;
+    private final Instant watermark;
+    private final int rows;
+    private final int mask;
+    private final int[] sections = new int[Section.values().length];
+
+    // Decoded lazily; a racing thread decodes the same immutable String at worst
+    private final String[] dictionary;
+
+    private CatalogSnapshot(ByteBuffer buffer, Path path) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a song catalog snapshot: " + path);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported song catalog snapshot version " + buffer.getInt(4) + ": " + path);
+        }
+        this.watermark = fromMicros(buffer.getLong(8));
+        this.rows = buffer.getInt(16);
+        int dictionarySize = buffer.getInt(20);
+        int slots = buffer.getInt(24);
+        this.mask = slots - 1;
+        this.dictionary = new String[dictionarySize];
+
+        long previous = HEADER_BYTES;
+        for (Section section : Section.values()) {
+            long start = buffer.getLong(28 + section.ordinal() * 8);
+            if (start < previous || start > buffer.capacity()) {
+                throw new IOException("Corrupt song catalog snapshot, bad " + section + " offset: " + path);
+            }
+            sections[section.ordinal()] = (int) start;
+            previous = start;
+        }
+        long length = buffer.getLong(HEADER_BYTES - 8);
+        if (length != buffer.capacity() || Integer.bitCount(slots) != 1
+                || start(Section.INDEX) + (long) slots * Integer.BYTES != length
+                || start(Section.TITLE_OFFSETS) + (rows + 1L) * Integer.BYTES > start(Section.ARTISTS)
+                || start(Section.DICTIONARY_OFFSETS) + (dictionarySize + 1L) * Integer.BYTES > start(Section.DICTIONARY)) {
+            throw new IOException("Corrupt song catalog snapshot, truncated: " + path);
+        }
+    }
+
+    static CatalogSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Song catalog snapshot is larger than 2 GiB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), path);
+        }
+    }
+
+    // Every song with cached_at up to here was in the table when the snapshot was written
+    Instant watermark() {
+        return watermark;
+    }
+
+    int size() {
+        return rows;
+    }
+
+    Song get(SongKey key) {
+        long hash = hash(key);
+        int slot = (int) hash & mask;
+        while (true) {
+            int entry = buffer.getInt(start(Section.INDEX) + slot * Integer.BYTES);
+            if (entry == 0) {
+                return null;
+            }
+            int row = entry - 1;
+            if (buffer.getLong(start(Section.KEY_HASHES) + row * Long.BYTES) == hash) {
+                Song song = song(row);
+                if (SongKey.of(song.getTitle(), song.getArtist()).equals(key)) {
+                    return song;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private Song song(int row) {
+        int titleStart = buffer.getInt(start(Section.TITLE_OFFSETS) + row * Integer.BYTES);
+        int titleEnd = buffer.getInt(start(Section.TITLE_OFFSETS) + (row + 1) * Integer.BYTES);
+        return new Song(
+            buffer.getLong(start(Section.IDS) + row * Long.BYTES),
+            utf8(start(Section.TITLES) + titleStart, titleEnd - titleStart),
+            dictionary(intAt(Section.ARTISTS, row)),
+            dictionary(intAt(Section.ALBUMS, row)),
+            value(intAt(Section.YEARS, row)),
+            value(intAt(Section.DURATIONS, row)),
+            dictionary(intAt(Section.GENRES, row)),
+            fromMicros(buffer.getLong(start(Section.CACHED_AT) + row * Long.BYTES)));
+    }
+
+    private String dictionary(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        String value = dictionary[id];
+        if (value == null) {
+            int from = buffer.getInt(start(Section.DICTIONARY_OFFSETS) + id * Integer.BYTES);
+            int to = buffer.getInt(start(Section.DICTIONARY_OFFSETS) + (id + 1) * Integer.BYTES);
+            value = utf8(start(Section.DICTIONARY) + from, to - from);
+            dictionary[id] = value;
+        }
+        return value;
+    }
+
+    private String utf8(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int intAt(Section section, int row) {
+        return buffer.getInt(start(section) + row * Integer.BYTES);
+    }
+
+    private int start(Section section) {
+        return sections[section.ordinal()];
+    }
+
+    private static Integer value(int stored) {
+        return stored == NO_VALUE ? null : stored;
+    }
+
+    // FNV-1a over title, unit separator and artist (the lookup_key characters) without building
+    // the string, finished with the murmur3 mix so the low bits used for the slot are spread
+    static long hash(SongKey key) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, key.title());
+        hash = (hash ^ '\u001f') * 0x100000001b3L;
+        hash = hash(hash, key.artist());
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+}
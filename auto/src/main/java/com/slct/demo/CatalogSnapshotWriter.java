@@ -0,0 +1,259 @@
+package com.slct.demo;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.slct.demo.CatalogSnapshot.Section;
+
+// Writes a catalog snapshot in the layout read by CatalogSnapshot. Rows are streamed in, so
+// the columns go straight to temporary files next to the target; only the key hashes, the
+// string dictionary and, at the end, the hash index are held in memory.
+final class CatalogSnapshotWriter implements Closeable {
+
+    private static final int COPY_BUFFER = 1 << 16;
+
+    private final Path directory;
+    private final Map<Section, Spill> spills = new EnumMap<>(Section.class);
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private long[] hashes = new long[1024];
+    private int rows;
+    private long titleBytes;
+    private long dictionaryBytes;
+
+    CatalogSnapshotWriter(Path directory) throws IOException {
+        this.directory = directory;
+        try {
+            for (Section section : Section.values()) {
+                if (section != Section.KEY_HASHES && section != Section.INDEX) {
+                    spills.put(section, new Spill(Files.createTempFile(directory, "catalog-", ".part")));
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    void add(long id, String title, String artist, String album, Integer year, Integer durationMs, String genre,
+            Instant cachedAt) throws IOException {
+        if (rows == hashes.length) {
+            hashes = Arrays.copyOf(hashes, rows * 2);
+        }
+        hashes[rows++] = CatalogSnapshot.hash(SongKey.of(title, artist));
+
+        spill(Section.IDS).writeLong(id);
+        spill(Section.CACHED_AT).writeLong(CatalogSnapshot.toMicros(cachedAt));
+        byte[] titleUtf8 = title.getBytes(StandardCharsets.UTF_8);
+        spill(Section.TITLE_OFFSETS).writeInt(offset(titleBytes));
+        spill(Section.TITLES).write(titleUtf8);
+        titleBytes += titleUtf8.length;
+        spill(Section.ARTISTS).writeInt(intern(artist));
+        spill(Section.ALBUMS).writeInt(intern(album));
+        spill(Section.GENRES).writeInt(intern(genre));
+        spill(Section.YEARS).writeInt(year != null ? year : CatalogSnapshot.NO_VALUE);
+        spill(Section.DURATIONS).writeInt(durationMs != null ? durationMs : CatalogSnapshot.NO_VALUE);
+    }
+
+    int size() {
+        return rows;
+    }
+
+    // Writes the snapshot to a temporary file and moves it over the target, so readers only
+    // ever map a complete file
+    void finish(Path target, Instant watermark) throws IOException {
+        spill(Section.TITLE_OFFSETS).writeInt(offset(titleBytes));
+        spill(Section.DICTIONARY_OFFSETS).writeInt(offset(dictionaryBytes));
+        int[] index = index();
+
+        long[] starts = new long[Section.values().length];
+        long position = CatalogSnapshot.HEADER_BYTES;
+        for (Section section : Section.values()) {
+            starts[section.ordinal()] = position;
+            position += switch (section) {
+                case KEY_HASHES -> (long) rows * Long.BYTES;
+                case INDEX -> (long) index.length * Integer.BYTES;
+                default -> spill(section).finish();
+            };
+        }
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Song catalog does not fit a single 2 GiB snapshot: " + position + " bytes");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(CatalogSnapshot.HEADER_BYTES)
+            .putInt(CatalogSnapshot.MAGIC)
+            .putInt(CatalogSnapshot.FORMAT_VERSION)
+            .putLong(CatalogSnapshot.toMicros(watermark))
+            .putInt(rows)
+            .putInt(dictionary.size())
+            .putInt(index.length);
+        for (long start : starts) {
+            header.putLong(start);
+        }
+        header.putLong(position).flip();
+
+        Path temporary = Files.createTempFile(directory, "catalog-", ".snapshot");
+        try {
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                writeFully(out, header);
+                for (Section section : Section.values()) {
+                    switch (section) {
+                        case KEY_HASHES -> writeLongs(out, hashes, rows);
+                        case INDEX -> writeInts(out, index);
+                        default -> spill(section).copyTo(out);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Spill spill : spills.values()) {
+            spill.delete();
+        }
+    }
+
+    // Open addressing with linear probing at a load factor of at most one half; slots hold
+    // row + 1 so that zero marks an empty slot
+    private int[] index() {
+        int[] slots = new int[Integer.highestOneBit(Math.max(1, rows * 2 - 1)) << 1];
+        int mask = slots.length - 1;
+        for (int row = 0; row < rows; row++) {
+            int slot = (int) hashes[row] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row + 1;
+        }
+        return slots;
+    }
+
+    private int intern(String value) throws IOException {
+        if (value == null) {
+            return CatalogSnapshot.NONE;
+        }
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(value, id);
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            spill(Section.DICTIONARY_OFFSETS).writeInt(offset(dictionaryBytes));
+            spill(Section.DICTIONARY).write(utf8);
+            dictionaryBytes += utf8.length;
+        }
+        return id;
+    }
+
+    private Spill spill(Section section) {
+        return spills.get(section);
+    }
+
+    private static int offset(long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Song catalog strings do not fit a single 2 GiB snapshot");
+        }
+        return (int) bytes;
+    }
+
+    private static void writeLongs(FileChannel out, long[] values, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Long.BYTES) {
+                writeFully(out, buffer.flip());
+                buffer.clear();
+            }
+            buffer.putLong(values[i]);
+        }
+        writeFully(out, buffer.flip());
+    }
+
+    private static void writeInts(FileChannel out, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER);
+        for (int value : values) {
+            if (buffer.remaining() < Integer.BYTES) {
+                writeFully(out, buffer.flip());
+                buffer.clear();
+            }
+            buffer.putInt(value);
+        }
+        writeFully(out, buffer.flip());
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // One column written to its own temporary file while rows stream in
+    private static final class Spill {
+
+        private final Path file;
+        private final DataOutputStream out;
+        private boolean closed;
+
+        Spill(Path file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), COPY_BUFFER));
+        }
+
+        void writeLong(long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        void writeInt(int value) throws IOException {
+            out.writeInt(value);
+        }
+
+        void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+        }
+
+        long finish() throws IOException {
+            if (!closed) {
+                out.close();
+                closed = true;
+            }
+            return Files.size(file);
+        }
+
+        void copyTo(FileChannel target) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = in.size();
+                long copied = 0;
+                while (copied < size) {
+                    copied += in.transferTo(copied, size - copied, target);
+                }
+            }
+        }
+
+        void delete() throws IOException {
+            try {
+                if (!closed) {
+                    out.close();
+                    closed = true;
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
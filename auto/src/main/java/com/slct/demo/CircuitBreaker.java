@@ -0,0 +1,121 @@
+package com.slct.demo;
+
+import java.util.function.Consumer;
+
+// Count-based circuit breaker: opens when the failure rate over the last windowSize calls
+// reaches failureRate, rejects everything while open, then lets halfOpenCalls probes
+// through. All probes succeeding closes it again, any probe failing reopens it.
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Consumer<State> onStateChange;
+
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRate, long openNanos, int halfOpenCalls,
+            Consumer<State> onStateChange) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRate = failureRate;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.onStateChange = onStateChange;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenCalls) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        switch (state) {
+            case CLOSED -> record(false);
+            case HALF_OPEN -> {
+                if (++probesSucceeded >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            }
+            // Calls that started before the breaker opened don't count
+            case OPEN -> { }
+        }
+    }
+
+    synchronized void onFailure() {
+        switch (state) {
+            case CLOSED -> {
+                record(true);
+                if (windowCount >= minimumCalls && windowFailures >= failureRate * windowCount) {
+                    transition(State.OPEN);
+                }
+            }
+            case HALF_OPEN -> transition(State.OPEN);
+            case OPEN -> { }
+        }
+    }
+
+    // For admitted calls that never reached the upstream, so a probe slot isn't lost
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        state = next;
+        switch (next) {
+            case OPEN -> openedAt = System.nanoTime();
+            case HALF_OPEN -> {
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                windowCount = 0;
+                windowFailures = 0;
+            }
+        }
+        onStateChange.accept(next);
+    }
+}
@@ -0,0 +1,30 @@
+package com.slct.demo;
+
+import java.util.List;
+
+// Explicit bucket boundaries, in seconds, advised to the latency histograms. The SDK default
+// buckets are in the 5 ms to 10 s range, which hides database hits and in-process work in
+// the first bucket.
+final class LatencyBuckets {
+
+    // Cache lookups, parsing and other work that never leaves the process
+    static final List<Double> IN_PROCESS = List.of(
+        0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05);
+
+    // Single-row and batched PostgreSQL queries
+    static final List<Double> DATABASE = List.of(
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0);
+
+    // MusicBrainz calls, including time spent waiting for the rate limiter
+    static final List<Double> UPSTREAM = List.of(
+        0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 30.0);
+
+    // Request phases recorded on one histogram: a read phase served from the cache or a write
+    // phase that only queues the song takes microseconds, a MusicBrainz fetch can take seconds
+    static final List<Double> REQUEST_PHASES = List.of(
+        0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01,
+        0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 30.0);
+
+    private LatencyBuckets() {
+    }
+}
@@ -0,0 +1,177 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+
+// Protects MusicBrainz, and our threads, from each other. A call has to get past, in order:
+// the circuit breaker (fails fast while MusicBrainz is unhealthy), a bounded wait queue, the
+// token bucket (MusicBrainz allows about one request per second) and the adaptive
+// concurrency limit. Waiting for a token or a slot is bounded by a deadline, and a call
+// that can't make it in time is rejected straight away instead of queueing.
+@Component
+public class MusicBrainzGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(MusicBrainzGuard.class);
+    private static final AttributeKey<String> REASON = AttributeKey.stringKey("reason");
+    private static final AttributeKey<String> STATE = AttributeKey.stringKey("state");
+
+    static final String CIRCUIT_OPEN = "circuit_open";
+    static final String QUEUE_FULL = "queue_full";
+    static final String RATE_LIMITED = "rate_limited";
+    static final String CONCURRENCY_LIMITED = "concurrency_limited";
+
+    @FunctionalInterface
+    public interface UpstreamCall<T> {
+        T call() throws IOException, InterruptedException;
+    }
+
+    private final TokenBucket tokenBucket;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final CircuitBreaker circuitBreaker;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LongCounter rejected;
+    private final LongCounter transitions;
+
+    public MusicBrainzGuard(
+            @Value("${music-service.rate-limit.rate:1}") double rate,
+            @Value("${music-service.rate-limit.burst:1}") int burst,
+            @Value("${music-service.limit.initial:4}") int initialLimit,
+            @Value("${music-service.limit.min:1}") int minLimit,
+            @Value("${music-service.limit.max:20}") int maxLimit,
+            @Value("${music-service.limit.latency-threshold:2s}") Duration latencyThreshold,
+            @Value("${music-service.queue.capacity:100}") int queueCapacity,
+            @Value("${music-service.queue.max-wait:5s}") Duration maxWait,
+            @Value("${music-service.circuit.window-size:20}") int windowSize,
+            @Value("${music-service.circuit.minimum-calls:10}") int minimumCalls,
+            @Value("${music-service.circuit.failure-rate:0.5}") double failureRate,
+            @Value("${music-service.circuit.open-duration:30s}") Duration openDuration,
+            @Value("${music-service.circuit.half-open-calls:1}") int halfOpenCalls) {
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.rejected = meter.counterBuilder("songs.upstream.rejected")
+            .setDescription("Number of MusicBrainz calls rejected before reaching MusicBrainz, by reason")
+            .build();
+        this.transitions = meter.counterBuilder("songs.upstream.circuit.transitions")
+            .setDescription("Number of circuit breaker state changes, by the state entered")
+            .build();
+
+        this.tokenBucket = new TokenBucket(rate, burst);
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyThreshold.toNanos());
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRate, openDuration.toNanos(), halfOpenCalls,
+            this::onStateChange);
+
+        meter.upDownCounterBuilder("songs.upstream.concurrency.limit")
+            .setDescription("Current adaptive limit on concurrent MusicBrainz calls")
+            .buildWithCallback(measurement -> measurement.record(concurrencyLimit.limit()));
+        meter.upDownCounterBuilder("songs.upstream.in_flight")
+            .setDescription("Number of MusicBrainz calls in flight")
+            .buildWithCallback(measurement -> measurement.record(concurrencyLimit.inFlight()));
+        meter.upDownCounterBuilder("songs.upstream.queue.size")
+            .setDescription("Number of MusicBrainz calls waiting for a token or a concurrency slot")
+            .buildWithCallback(measurement -> measurement.record(waiting.get()));
+        meter.upDownCounterBuilder("songs.upstream.circuit.state")
+            .setDescription("Circuit breaker state, 1 for the current state and 0 for the others")
+            .buildWithCallback(measurement -> {
+                CircuitBreaker.State current = circuitBreaker.state();
+                for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                    measurement.record(state == current ? 1 : 0, stateAttributes(state));
+                }
+            });
+    }
+
+    public <T> T call(UpstreamCall<T> call) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+
+        if (!circuitBreaker.tryAcquire()) {
+            throw reject(CIRCUIT_OPEN, "MusicBrainz is unavailable, circuit breaker is open");
+        }
+
+        boolean admitted = false;
+        try {
+            if (waiting.incrementAndGet() > queueCapacity) {
+                waiting.decrementAndGet();
+                throw reject(QUEUE_FULL, "Too many MusicBrainz calls waiting");
+            }
+            try {
+                long waitNanos = tokenBucket.reserve(deadline - System.nanoTime());
+                if (waitNanos < 0) {
+                    throw reject(RATE_LIMITED, "MusicBrainz rate limit leaves no room before the deadline");
+                }
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+                if (!concurrencyLimit.acquire(deadline - System.nanoTime())) {
+                    throw reject(CONCURRENCY_LIMITED, "No MusicBrainz concurrency slot freed up before the deadline");
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+            admitted = true;
+        } finally {
+            if (!admitted) {
+                circuitBreaker.onIgnored();
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            concurrencyLimit.release(System.nanoTime() - start, false);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (UpstreamStatusException e) {
+            // A 4xx other than 429 is an answer about the request, not a sign of an unhealthy upstream
+            boolean failed = e.isUpstreamFailure();
+            concurrencyLimit.release(System.nanoTime() - start, failed);
+            if (failed) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        } catch (IOException e) {
+            // Timeouts, refused connections and other transport errors
+            concurrencyLimit.release(System.nanoTime() - start, true);
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (InterruptedException | RuntimeException | Error e) {
+            concurrencyLimit.releaseIgnored();
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+    }
+
+    // Counts the rejection, for callers that turn MusicBrainz calls away themselves as well
+    UpstreamRejectedException reject(String reason, String message) {
+        rejected.add(1, Attributes.of(REASON, reason));
+        return new UpstreamRejectedException(reason, message);
+    }
+
+    private void onStateChange(CircuitBreaker.State state) {
+        logger.info("MusicBrainz circuit breaker is now {}", state);
+        transitions.add(1, stateAttributes(state));
+    }
+
+    private static Attributes stateAttributes(CircuitBreaker.State state) {
+        return Attributes.of(STATE, state.name().toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,171 @@
+package com.slct.demo;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.slct.demo.RecordingRanker.Ranking;
+import com.slct.demo.RecordingRanker.RecordingScore;
+
+// Picks the best recording, release, year, duration and genre from a MusicBrainz
+// recording search response in a single streaming pass, without building a JsonNode tree.
+// Scoring is left to RecordingRanker, fed as each release and tag is read.
+public class MusicBrainzResponseParser {
+
+    private final JsonFactory jsonFactory;
+    private final RecordingRanker ranker;
+
+    public MusicBrainzResponseParser(JsonFactory jsonFactory) {
+        this(jsonFactory, RecordingRanker.defaults());
+    }
+
+    public MusicBrainzResponseParser(JsonFactory jsonFactory, RecordingRanker ranker) {
+        this.jsonFactory = jsonFactory;
+        this.ranker = ranker;
+    }
+
+    // Returns null when the response contains no recordings
+    public RecordingMatch parse(byte[] body) throws IOException {
+        if (body == null) {
+            throw new IllegalArgumentException("MusicBrainz response body is empty");
+        }
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            Ranking ranking = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("recordings".equals(field)) {
+                    ranking = value == JsonToken.START_ARRAY ? parseRecordings(parser) : null;
+                }
+                parser.skipChildren();
+            }
+            return ranking != null ? ranking.toMatch() : null;
+        }
+    }
+
+    private Ranking parseRecordings(JsonParser parser) throws IOException {
+        Ranking ranking = ranker.newRanking();
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            RecordingScore recording = ranking.newRecording();
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                parseRecording(parser, recording);
+            } else {
+                parser.skipChildren();
+            }
+            ranking.add(recording);
+        }
+        return ranking.isEmpty() ? null : ranking;
+    }
+
+    private void parseRecording(JsonParser parser, RecordingScore recording) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "length" -> recording.length(intValue(parser, value));
+                case "releases" -> {
+                    recording.resetReleases();
+                    if (value == JsonToken.START_ARRAY) {
+                        parseReleases(parser, recording);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "tags" -> {
+                    recording.resetTags();
+                    if (value == JsonToken.START_ARRAY) {
+                        parseTags(parser, recording);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void parseReleases(JsonParser parser, RecordingScore recording) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String title = null;
+            String date = null;
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("date".equals(field)) {
+                        date = textValue(parser, value);
+                    } else if ("title".equals(field)) {
+                        title = textValue(parser, value);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            recording.release(title, date);
+        }
+    }
+
+    private void parseTags(JsonParser parser, RecordingScore recording) throws IOException {
+        boolean firstTag = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            // Only the first tag is used, the rest are skipped without reading their names
+            String name = null;
+            if (firstTag && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("name".equals(field)) {
+                        name = textValue(parser, value);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            if (firstTag) {
+                recording.tag(name);
+                firstTag = false;
+            }
+        }
+    }
+
+    // Same text JsonNode.asText() would give for the value
+    private static String textValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    // Same number JsonNode.asInt() would give for the value
+    private static int intValue(JsonParser parser, JsonToken value) throws IOException {
+        switch (value) {
+            case VALUE_NUMBER_INT:
+                return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                    ? parser.getBigIntegerValue().intValue()
+                    : (int) parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return (int) parser.getDoubleValue();
+            case START_OBJECT:
+            case START_ARRAY:
+                parser.skipChildren();
+                return 0;
+            default:
+                return parser.getValueAsInt(0);
+        }
+    }
+
+    public record RecordingMatch(String album, Integer year, Integer durationMs, String genre) {
+    }
+}
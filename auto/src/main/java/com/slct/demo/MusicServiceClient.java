@@ -0,0 +1,88 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Shared, pooled HTTP client for MusicBrainz: connections are kept alive and reused
+// across requests, HTTP/2 is negotiated when the server supports it.
+@Component
+public class MusicServiceClient {
+
+    private final HttpClient httpClient;
+    private final String musicServiceUrl;
+    private final Duration readTimeout;
+    private final Duration totalTimeout;
+
+    public MusicServiceClient(
+            @Value("${MUSIC_SERVICE_URL:https://musicbrainz.org/ws/2/recording/}") String musicServiceUrl,
+            @Value("${music-service.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${music-service.read-timeout:5s}") Duration readTimeout,
+            @Value("${music-service.total-timeout:10s}") Duration totalTimeout) {
+        this.musicServiceUrl = musicServiceUrl;
+        this.readTimeout = readTimeout;
+        this.totalTimeout = totalTimeout;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    // Returns the raw JSON body of a MusicBrainz recording search
+    public byte[] searchRecordings(String title, String artist) throws IOException, InterruptedException {
+        String query = String.format("recording:\"%s\" AND artist:\"%s\"", title, artist);
+        URI uri = URI.create(musicServiceUrl + "?query=" + encode(query) + "&fmt=json&limit=20");
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(readTimeout)
+            .header("User-Agent", "otel-demo/1.0")
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+
+        HttpResponse<byte[]> response = send(request);
+        if (response.statusCode() >= 400) {
+            throw new UpstreamStatusException(response.statusCode());
+        }
+        return response.body();
+    }
+
+    // The request timeout only covers the wait for response headers, so the whole exchange
+    // including the body is bounded separately
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<byte[]>> response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            return response.get(totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            response.cancel(true);
+            throw new IOException("MusicBrainz request timed out after " + totalTimeout.toMillis() + " ms", e);
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,315 @@
+package com.slct.demo;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.slct.demo.MusicBrainzResponseParser.RecordingMatch;
+
+// Scores MusicBrainz recordings and releases while they are parsed. Studio releases win over
+// live ones, then the earliest release year wins. What counts as "live" is a list of rules,
+// checked by scanning characters instead of lower-casing strings or running regexes.
+public class RecordingRanker {
+
+    public static final int NO_YEAR = Integer.MIN_VALUE;
+
+    @FunctionalInterface
+    public interface LiveReleaseRule {
+        boolean matches(String title, String date);
+    }
+
+    // Release titles mentioning a live performance
+    public static final LiveReleaseRule LIVE_TITLE = titleContains("live", "concert", "stage", "tour");
+
+    // Specific dates (YYYY-MM-DD) often indicate live shows
+    public static final LiveReleaseRule FULL_DATE = (title, date) -> containsFullDate(date);
+
+    private static final RecordingRanker DEFAULT = new RecordingRanker(List.of(LIVE_TITLE, FULL_DATE));
+
+    private final LiveReleaseRule[] liveRules;
+
+    public RecordingRanker(List<LiveReleaseRule> liveRules) {
+        this.liveRules = liveRules.toArray(new LiveReleaseRule[0]);
+    }
+
+    public static RecordingRanker defaults() {
+        return DEFAULT;
+    }
+
+    public Ranking newRanking() {
+        return new Ranking();
+    }
+
+    boolean isLive(String title, String date) {
+        for (LiveReleaseRule rule : liveRules) {
+            if (rule.matches(title, date)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Handles YYYY, YYYY-MM and YYYY-MM-DD: the part before the first '-' must be four
+    // characters that Integer.parseInt accepts
+    public static int extractYear(String date) {
+        if (date == null) {
+            return NO_YEAR;
+        }
+        int end = date.indexOf('-');
+        if (end < 0) {
+            end = date.length();
+        }
+        if (end != 4) {
+            return NO_YEAR;
+        }
+
+        int year = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = date.charAt(i);
+            if (i == 0 && c == '+') {
+                continue;
+            }
+            int digit = Character.digit(c, 10);
+            if (digit < 0) {
+                return NO_YEAR;
+            }
+            year = year * 10 + digit;
+        }
+        return year;
+    }
+
+    public static LiveReleaseRule titleContains(String... markers) {
+        char[][] lowerMarkers = new char[markers.length][];
+        for (int i = 0; i < markers.length; i++) {
+            lowerMarkers[i] = markers[i].toLowerCase(Locale.ROOT).toCharArray();
+        }
+        return (title, date) -> {
+            if (title == null) {
+                return false;
+            }
+            for (char[] marker : lowerMarkers) {
+                if (containsIgnoreAsciiCase(title, marker)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static boolean containsIgnoreAsciiCase(String text, char[] lowerMarker) {
+        int last = text.length() - lowerMarker.length;
+        outer:
+        for (int start = 0; start <= last; start++) {
+            for (int i = 0; i < lowerMarker.length; i++) {
+                char c = text.charAt(start + i);
+                if (c >= 'A' && c <= 'Z') {
+                    c = (char) (c + ('a' - 'A'));
+                }
+                if (c != lowerMarker[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Same answer as date.matches(".*\\d{4}-\\d{2}-\\d{2}.*"), where '.' stops at line terminators
+    private static boolean containsFullDate(String date) {
+        int length = date.length();
+        for (int i = 0; i < length; i++) {
+            char c = date.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        for (int start = 0; start + 10 <= length; start++) {
+            if (isDigits(date, start, 4) && date.charAt(start + 4) == '-'
+                    && isDigits(date, start + 5, 2) && date.charAt(start + 7) == '-'
+                    && isDigits(date, start + 8, 2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigits(String text, int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Per-recording accumulator, fed one release at a time
+    public final class RecordingScore {
+        private boolean hasLength;
+        private int length;
+
+        private boolean hasReleases;
+        private String firstReleaseTitle;
+        private String firstReleaseDate;
+
+        // Recording ranking: does it have a studio release, and its earliest release year
+        private boolean hasStudioRelease;
+        private int earliestYear = NO_YEAR;
+
+        // Release ranking within this recording, used if the recording gets selected
+        private boolean hasBestRelease;
+        private String bestReleaseTitle;
+        private String bestReleaseDate;
+        private int bestReleaseYear = NO_YEAR;
+        private boolean foundStudioRelease;
+
+        private boolean hasTags;
+        private String firstTagName;
+
+        private RecordingScore() {
+        }
+
+        public void length(int length) {
+            this.hasLength = true;
+            this.length = length;
+        }
+
+        public void resetReleases() {
+            hasReleases = false;
+            firstReleaseTitle = null;
+            firstReleaseDate = null;
+            hasStudioRelease = false;
+            earliestYear = NO_YEAR;
+            hasBestRelease = false;
+            bestReleaseTitle = null;
+            bestReleaseDate = null;
+            bestReleaseYear = NO_YEAR;
+            foundStudioRelease = false;
+        }
+
+        // title and date are null when the release doesn't have them
+        public void release(String title, String date) {
+            if (!hasReleases) {
+                hasReleases = true;
+                firstReleaseTitle = title;
+                firstReleaseDate = date;
+            }
+            if (date == null) {
+                return;
+            }
+
+            int releaseYear = extractYear(date);
+            boolean live = isLive(title, date);
+
+            if (releaseYear != NO_YEAR) {
+                if (!live) {
+                    hasStudioRelease = true;
+                }
+                if (earliestYear == NO_YEAR || releaseYear < earliestYear) {
+                    earliestYear = releaseYear;
+                }
+
+                // Studio releases first, then the earliest year within the same type
+                if (!hasBestRelease
+                        || (!foundStudioRelease && !live)
+                        || (foundStudioRelease == !live && (bestReleaseYear == NO_YEAR || releaseYear < bestReleaseYear))) {
+                    hasBestRelease = true;
+                    bestReleaseTitle = title;
+                    bestReleaseDate = date;
+                    bestReleaseYear = releaseYear;
+                    foundStudioRelease = !live;
+                }
+            }
+        }
+
+        public void resetTags() {
+            hasTags = false;
+            firstTagName = null;
+        }
+
+        // name is null when the tag has no name
+        public void tag(String name) {
+            if (!hasTags) {
+                hasTags = true;
+                firstTagName = name;
+            }
+        }
+
+        private String genre() {
+            if (firstTagName == null) {
+                throw new IllegalStateException("MusicBrainz tag without a name");
+            }
+            return firstTagName;
+        }
+    }
+
+    // Keeps the best recording seen so far plus the fallbacks needed to build the match
+    public final class Ranking {
+        private RecordingScore first;
+        private RecordingScore best;
+        private boolean foundStudioAlbum;
+        private RecordingScore firstTagged;
+
+        private Ranking() {
+        }
+
+        public RecordingScore newRecording() {
+            return new RecordingScore();
+        }
+
+        public void add(RecordingScore recording) {
+            if (first == null) {
+                first = recording;
+            }
+            if (firstTagged == null && recording.hasTags) {
+                firstTagged = recording;
+            }
+            if (!recording.hasReleases || recording.earliestYear == NO_YEAR) {
+                return;
+            }
+
+            // Studio releases first, then the earliest year within the same type
+            if (best == null
+                    || (!foundStudioAlbum && recording.hasStudioRelease)
+                    || (foundStudioAlbum == recording.hasStudioRelease && recording.earliestYear < best.earliestYear)) {
+                best = recording;
+                foundStudioAlbum = recording.hasStudioRelease;
+            }
+        }
+
+        public boolean isEmpty() {
+            return first == null;
+        }
+
+        public RecordingMatch toMatch() {
+            // If no recording with release date found, use the first one
+            RecordingScore selected = best != null ? best : first;
+
+            Integer durationMs = selected.hasLength ? selected.length : null;
+
+            String album = "Unknown";
+            Integer year = null;
+            if (selected.hasReleases) {
+                // Use the best release or first release if no dates found
+                String title = selected.hasBestRelease ? selected.bestReleaseTitle : selected.firstReleaseTitle;
+                String date = selected.hasBestRelease ? selected.bestReleaseDate : selected.firstReleaseDate;
+                if (title != null) {
+                    album = title;
+                }
+                if (date != null) {
+                    int releaseYear = extractYear(date);
+                    year = releaseYear != NO_YEAR ? releaseYear : null;
+                }
+            }
+
+            // Fall back to the tags of the first recording that has any
+            String genre = "Unknown";
+            if (selected.hasTags) {
+                genre = selected.genre();
+            } else if (firstTagged != null) {
+                genre = firstTagged.genre();
+            }
+
+            return new RecordingMatch(album, year, durationMs, genre);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.slct.demo;
+
+import java.util.Locale;
+
+import org.springframework.stereotype.Component;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+
+// Times the phases of a song request separately, so a slow MusicBrainz shows up in the
+// upstream phase while the database phases stay flat
+@Component
+public class RequestPhases {
+
+    private static final AttributeKey<String> PHASE = AttributeKey.stringKey("phase");
+
+    public enum Phase { DB_READ, UPSTREAM_FETCH, DB_WRITE }
+
+    private final DoubleHistogram duration;
+    private final Attributes[] attributes = new Attributes[Phase.values().length];
+
+    public RequestPhases() {
+        this.duration = GlobalOpenTelemetry.getMeter("com.slct.demo").histogramBuilder("songs.request.phase.duration")
+            .setDescription("Duration of each phase of a song request")
+            .setUnit("s")
+            .setExplicitBucketBoundariesAdvice(LatencyBuckets.REQUEST_PHASES)
+            .build();
+        for (Phase phase : Phase.values()) {
+            attributes[phase.ordinal()] = Attributes.of(PHASE, phase.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public void record(Phase phase, long startNanos) {
+        duration.record((System.nanoTime() - startNanos) / 1_000_000_000d, attributes[phase.ordinal()]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.slct.demo;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+
+// Collapses concurrent calls for the same key into a single execution:
+// the first caller runs the loader, later callers wait on its result.
+public class SingleFlight<K, V> {
+
+    private static final AttributeKey<String> FLIGHT_NAME = AttributeKey.stringKey("singleflight.name");
+    private static final AttributeKey<String> REASON = AttributeKey.stringKey("reason");
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final int maxWaiters;
+    private final Duration timeout;
+
+    private final Attributes attributes;
+    private final Attributes tooManyWaiters;
+    private final Attributes timedOut;
+    private final LongCounter executions;
+    private final LongCounter collapsed;
+    private final LongCounter rejected;
+
+    public SingleFlight(String name, int maxWaiters, Duration timeout) {
+        this.maxWaiters = maxWaiters;
+        this.timeout = timeout;
+        this.attributes = Attributes.of(FLIGHT_NAME, name);
+        this.tooManyWaiters = Attributes.of(FLIGHT_NAME, name, REASON, "max_waiters");
+        this.timedOut = Attributes.of(FLIGHT_NAME, name, REASON, "timeout");
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.executions = meter.counterBuilder("songs.singleflight.executions")
+            .setDescription("Number of calls that ran the loader")
+            .build();
+        this.collapsed = meter.counterBuilder("songs.singleflight.collapsed")
+            .setDescription("Number of calls that waited on an in-flight execution instead of running the loader")
+            .build();
+        this.rejected = meter.counterBuilder("songs.singleflight.rejected")
+            .setDescription("Number of waiting calls that were rejected or gave up")
+            .build();
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        Flight<V> created = new Flight<>();
+        Flight<V> flight = inFlight.putIfAbsent(key, created);
+
+        if (flight == null) {
+            executions.add(1, attributes);
+            try {
+                V value = loader.get();
+                created.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                created.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, created);
+            }
+        }
+
+        if (flight.waiters.incrementAndGet() > maxWaiters) {
+            flight.waiters.decrementAndGet();
+            rejected.add(1, tooManyWaiters);
+            throw new RuntimeException("Too many concurrent requests waiting for the same lookup");
+        }
+
+        collapsed.add(1, attributes);
+        try {
+            return flight.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            rejected.add(1, timedOut);
+            throw new RuntimeException("Timed out waiting for in-flight lookup", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for in-flight lookup", e);
+        } finally {
+            flight.waiters.decrementAndGet();
+        }
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+}
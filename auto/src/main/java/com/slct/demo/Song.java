@@ -2,6 +2,8 @@ package com.slct.demo;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
+
 @Entity
 @Table(name = "songs")
 public class Song {
@@ -27,6 +29,22 @@ public class Song {
     
     @Column(name = "genre")
     private String genre;
+
+    // Normalized title + artist, backed by the unique_lookup_key btree index. The column is
+    // generated by PostgreSQL; the copy here is computed the same way for the caches.
+    @Column(name = "lookup_key", nullable = false, length = 511, insertable = false, updatable = false)
+    private String lookupKey;
+
+    // When the metadata was last fetched from MusicBrainz
+    @Column(name = "cached_at", nullable = false)
+    private Instant cachedAt;
+
+    // Pre-serialized JSON response, built once and reused for every request
+    @Transient
+    private volatile byte[] json;
+
+    @Transient
+    private volatile String etag;
     
     // Default constructor
     public Song() {}
@@ -39,6 +57,15 @@ public class Song {
         this.year = year;
         this.durationMs = durationMs;
         this.genre = genre;
+        this.lookupKey = SongKey.of(title, artist).lookupKey();
+        this.cachedAt = Instant.now();
+    }
+    
+    // Constructor used by read-only projections, the instance is never managed by Hibernate
+    public Song(Long id, String title, String artist, String album, Integer year, Integer durationMs, String genre, Instant cachedAt) {
+        this(title, artist, album, year, durationMs, genre);
+        this.id = id;
+        this.cachedAt = cachedAt;
     }
     
     // Getters and Setters
@@ -56,6 +83,9 @@ public class Song {
     
     public void setTitle(String title) {
         this.title = title;
+        this.lookupKey = SongKey.of(title, artist).lookupKey();
+        this.json = null;
+        this.etag = null;
     }
     
     public String getArtist() {
@@ -64,6 +94,9 @@ public class Song {
     
     public void setArtist(String artist) {
         this.artist = artist;
+        this.lookupKey = SongKey.of(title, artist).lookupKey();
+        this.json = null;
+        this.etag = null;
     }
     
     public String getAlbum() {
@@ -72,6 +105,7 @@ public class Song {
     
     public void setAlbum(String album) {
         this.album = album;
+        this.json = null;
     }
     
     public Integer getYear() {
@@ -80,6 +114,7 @@ public class Song {
     
     public void setYear(Integer year) {
         this.year = year;
+        this.json = null;
     }
     
     public Integer getDurationMs() {
@@ -88,6 +123,7 @@ public class Song {
     
     public void setDurationMs(Integer durationMs) {
         this.durationMs = durationMs;
+        this.json = null;
     }
     
     public String getGenre() {
@@ -96,6 +132,41 @@ public class Song {
     
     public void setGenre(String genre) {
         this.genre = genre;
+        this.json = null;
+    }
+    
+    public String getLookupKey() {
+        return lookupKey;
+    }
+    
+    public Instant getCachedAt() {
+        return cachedAt;
+    }
+    
+    public void setCachedAt(Instant cachedAt) {
+        this.cachedAt = cachedAt;
+        this.etag = null;
+    }
+    
+    public byte[] toJson() {
+        byte[] encoded = json;
+        if (encoded == null) {
+            encoded = SongJson.encode(this);
+            json = encoded;
+        }
+        return encoded;
+    }
+
+    // Strong validator for the JSON body: the lookup key names the row and cached_at moves
+    // whenever its metadata is fetched again, which is the only time the body changes
+    public String etag() {
+        String tag = etag;
+        if (tag == null) {
+            tag = "\"" + Long.toHexString(CatalogSnapshot.hash(SongKey.of(title, artist)))
+                + "-" + Long.toHexString(CatalogSnapshot.toMicros(cachedAt)) + "\"";
+            etag = tag;
+        }
+        return tag;
     }
     
     @Override
@@ -0,0 +1,129 @@
+package com.slct.demo;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+
+@Component
+public class SongCache {
+
+    private static final AttributeKey<String> CACHE_NAME = AttributeKey.stringKey("cache.name");
+    private static final Attributes SONGS = Attributes.of(CACHE_NAME, "songs");
+    private static final Attributes NOT_FOUND = Attributes.of(CACHE_NAME, "songs_not_found");
+
+    // Entry weights are rough retained bytes: the key, entry and Song objects, each String
+    // and array with its header, string contents at two bytes a char (compact strings use
+    // one for Latin-1, so that's slack) and the encoded response
+    private static final int ENTRY_OVERHEAD = 160;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ARRAY_OVERHEAD = 16;
+
+    // Caffeine evicts with W-TinyLFU, so one-off lookups don't push out the hot set
+    private final Cache<SongKey, Song> songs;
+    private final Cache<SongKey, Boolean> notFound;
+
+    public SongCache(
+            @Value("${songs.cache.maximum-weight:50000000}") long maximumWeight,
+            @Value("${songs.cache.ttl:1h}") Duration ttl,
+            @Value("${songs.cache.not-found.maximum-size:100000}") long notFoundMaximumSize,
+            @Value("${songs.cache.not-found.ttl:5m}") Duration notFoundTtl) {
+        this.songs = Caffeine.newBuilder()
+            .maximumWeight(maximumWeight)
+            .weigher(SongCache::weigh)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.notFound = Caffeine.newBuilder()
+            .maximumSize(notFoundMaximumSize)
+            .expireAfterWrite(notFoundTtl)
+            .recordStats()
+            .build();
+
+        registerMetrics(GlobalOpenTelemetry.getMeter("com.slct.demo"));
+    }
+
+    public Song get(SongKey key) {
+        return songs.getIfPresent(key);
+    }
+
+    public void put(SongKey key, Song song) {
+        // Encode the response up front so cache hits only copy bytes
+        song.toJson();
+        songs.put(key, song);
+        notFound.invalidate(key);
+    }
+
+    public boolean isNotFound(SongKey key) {
+        return notFound.getIfPresent(key) != null;
+    }
+
+    public void putNotFound(SongKey key) {
+        notFound.put(key, Boolean.TRUE);
+    }
+
+    public void invalidate(SongKey key) {
+        songs.invalidate(key);
+        notFound.invalidate(key);
+    }
+
+    // Drops the cached song only if it predates the change, so a replica doesn't evict the
+    // copy it just wrote itself. PostgreSQL keeps microseconds, the cached copy may have nanos.
+    public void invalidateOlderThan(SongKey key, Instant changedAt) {
+        songs.asMap().computeIfPresent(key,
+            (cachedKey, song) -> song.getCachedAt() == null
+                || song.getCachedAt().truncatedTo(ChronoUnit.MICROS).isBefore(changedAt) ? null : song);
+        notFound.invalidate(key);
+    }
+
+    private void registerMetrics(Meter meter) {
+        meter.counterBuilder("songs.cache.hits")
+            .setDescription("Number of song cache lookups that found an entry")
+            .buildWithCallback(measurement -> {
+                measurement.record(songs.stats().hitCount(), SONGS);
+                measurement.record(notFound.stats().hitCount(), NOT_FOUND);
+            });
+        meter.counterBuilder("songs.cache.misses")
+            .setDescription("Number of song cache lookups that found no entry")
+            .buildWithCallback(measurement -> {
+                measurement.record(songs.stats().missCount(), SONGS);
+                measurement.record(notFound.stats().missCount(), NOT_FOUND);
+            });
+        meter.counterBuilder("songs.cache.evictions")
+            .setDescription("Number of song cache entries evicted by size or expiration")
+            .buildWithCallback(measurement -> {
+                measurement.record(songs.stats().evictionCount(), SONGS);
+                measurement.record(notFound.stats().evictionCount(), NOT_FOUND);
+            });
+        meter.upDownCounterBuilder("songs.cache.size")
+            .setDescription("Estimated number of entries in the song cache")
+            .buildWithCallback(measurement -> {
+                measurement.record(songs.estimatedSize(), SONGS);
+                measurement.record(notFound.estimatedSize(), NOT_FOUND);
+            });
+    }
+
+    private static int weigh(SongKey key, Song song) {
+        return ENTRY_OVERHEAD
+            + size(key.title()) + size(key.artist())
+            + size(song.getTitle()) + size(song.getArtist()) + size(song.getAlbum()) + size(song.getGenre())
+            + size(song.getLookupKey())
+            // Computed here rather than by the first conditional GET, so the weight holds it
+            + (song.getCachedAt() != null ? size(song.etag()) : 0)
+            + ARRAY_OVERHEAD + song.toJson().length;
+    }
+
+    private static int size(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2 * value.length();
+    }
+}
@@ -0,0 +1,243 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Serves stored songs from a memory-mapped snapshot of the songs table, so a fresh replica
+// answers hits without a database round trip or a warm cache. A background worker rewrites
+// the snapshot every songs.snapshot.write-interval (or maps a newer one written by another
+// replica) and polls the table for rows changed after the snapshot watermark; those lookup
+// keys are superseded and go to the database instead.
+@Component
+public class SongCatalog {
+
+    @Autowired
+    private SongCache songCache;
+
+    private static final Logger logger = LoggerFactory.getLogger(SongCatalog.class);
+
+    private static final String SNAPSHOT_SQL =
+        "SELECT id, title, artist, album, year, duration_ms, genre, cached_at FROM songs WHERE cached_at <= ?";
+    private static final String CHANGES_SQL = "SELECT lookup_key, cached_at FROM songs WHERE cached_at > ?";
+    private static final int FETCH_SIZE = 10_000;
+
+    // The write-behind queue commits rows a little after their cached_at, so every poll looks
+    // back this far past the newest change it has already seen
+    static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration writeInterval;
+    private final Duration catchUpInterval;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private volatile CatalogSnapshot snapshot;
+    private volatile FileTime snapshotModified;
+    private volatile Set<String> superseded = ConcurrentHashMap.newKeySet();
+    private Instant caughtUpTo;
+
+    private final DoubleHistogram writeDuration;
+
+    public SongCatalog(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${songs.snapshot.enabled:true}") boolean enabled,
+            @Value("${songs.snapshot.path:${java.io.tmpdir}/songs/catalog.snapshot}") Path path,
+            @Value("${songs.snapshot.write-interval:1h}") Duration writeInterval,
+            @Value("${songs.snapshot.catch-up-interval:30s}") Duration catchUpInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+        this.path = path.toAbsolutePath();
+        this.writeInterval = writeInterval;
+        this.catchUpInterval = catchUpInterval;
+        this.worker = Thread.ofVirtual().name("song-catalog").unstarted(this::run);
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.writeDuration = meter.histogramBuilder("songs.snapshot.write.duration")
+            .setDescription("Duration of writing the song catalog snapshot")
+            .setUnit("s")
+            .build();
+        meter.upDownCounterBuilder("songs.snapshot.size")
+            .setDescription("Number of songs in the mapped catalog snapshot")
+            .buildWithCallback(measurement -> {
+                CatalogSnapshot current = snapshot;
+                measurement.record(current != null ? current.size() : 0);
+            });
+        meter.upDownCounterBuilder("songs.snapshot.superseded")
+            .setDescription("Number of songs changed since the catalog snapshot was written")
+            .buildWithCallback(measurement -> measurement.record(superseded.size()));
+    }
+
+    // Mapping an existing snapshot is cheap and needs no database, so it happens before the
+    // first request; catching up with later changes is left to the worker
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        if (Files.exists(path)) {
+            try {
+                load(false);
+            } catch (IOException e) {
+                logger.warn("Could not map song catalog snapshot {}", path, e);
+            }
+        }
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    // Returns null when the snapshot doesn't have the song or the song changed after it
+    public Song get(SongKey key) {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        Song song = current.get(key);
+        if (song == null || superseded.contains(key.lookupKey())) {
+            return null;
+        }
+        return song;
+    }
+
+    // Called for every song saved by this replica; changes made elsewhere arrive with the next poll
+    public void supersede(SongKey key) {
+        if (snapshot != null) {
+            superseded.add(key.lookupKey());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                FileTime modified = Files.exists(path) ? Files.getLastModifiedTime(path) : null;
+                if (modified == null || modified.toInstant().isBefore(Instant.now().minus(writeInterval))) {
+                    // The rewrite is a full scan, keep the mapped snapshot correct meanwhile
+                    if (snapshot != null) {
+                        catchUp();
+                    }
+                    write();
+                    load(true);
+                } else if (!modified.equals(snapshotModified)) {
+                    load(true);
+                } else if (snapshot != null) {
+                    catchUp();
+                }
+            } catch (Exception e) {
+                logger.warn("Song catalog snapshot maintenance failed", e);
+            }
+
+            try {
+                Thread.sleep(catchUpInterval);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    // The changes since the new watermark are collected before it is published, except at
+    // startup where the database is left to the worker. They are read from the last catch-up
+    // if that is older, so nothing changed in between stays cached from the previous snapshot.
+    private void load(boolean catchUp) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        CatalogSnapshot next = CatalogSnapshot.open(path);
+        Set<String> changed = ConcurrentHashMap.newKeySet();
+        Instant since = caughtUpTo != null && caughtUpTo.isBefore(next.watermark()) ? caughtUpTo : next.watermark();
+        Instant newest = next.watermark();
+        if (catchUp) {
+            Instant changedUpTo = changesSince(since, changed);
+            newest = changedUpTo.isAfter(newest) ? changedUpTo : newest;
+        }
+        synchronized (this) {
+            superseded = changed;
+            caughtUpTo = newest;
+            snapshot = next;
+            snapshotModified = modified;
+        }
+        logger.info("Mapped song catalog snapshot {} with {} songs up to {}", path, next.size(), next.watermark());
+    }
+
+    private synchronized void catchUp() {
+        caughtUpTo = changesSince(caughtUpTo, superseded);
+    }
+
+    // Snapshot hits are copied into the song cache, so a changed song is evicted there as well
+    private Instant changesSince(Instant since, Set<String> changed) {
+        Instant[] newest = { since };
+        jdbcTemplate.query(CHANGES_SQL, rs -> {
+            String lookupKey = rs.getString("lookup_key");
+            Instant cachedAt = rs.getTimestamp("cached_at").toInstant();
+            changed.add(lookupKey);
+            songCache.invalidateOlderThan(SongKey.fromLookupKey(lookupKey), cachedAt);
+            if (cachedAt.isAfter(newest[0])) {
+                newest[0] = cachedAt;
+            }
+        }, Timestamp.from(since.minus(CATCH_UP_OVERLAP)));
+        return newest[0];
+    }
+
+    private void write() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(path.getParent());
+        Timestamp newest = jdbcTemplate.queryForObject("SELECT max(cached_at) FROM songs", Timestamp.class);
+        Instant watermark = newest != null ? newest.toInstant() : Instant.EPOCH;
+
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(path.getParent())) {
+            // PostgreSQL only streams with a cursor inside a transaction, otherwise the whole
+            // table is fetched before the first row is handed over
+            readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SNAPSHOT_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setTimestamp(1, Timestamp.from(watermark));
+                return statement;
+            }, rs -> {
+                try {
+                    writer.add(rs.getLong("id"), rs.getString("title"), rs.getString("artist"), rs.getString("album"),
+                        rs.getObject("year", Integer.class), rs.getObject("duration_ms", Integer.class),
+                        rs.getString("genre"), rs.getTimestamp("cached_at").toInstant());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            writer.finish(path, watermark);
+            logger.info("Wrote song catalog snapshot {} with {} songs", path, writer.size());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writeDuration.record((System.nanoTime() - start) / 1_000_000_000d);
+        }
+    }
+}
@@ -4,215 +4,349 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import com.slct.demo.MusicBrainzResponseParser.RecordingMatch;
+import com.slct.demo.RequestPhases.Phase;
+import com.slct.demo.SongSearchIndex.Result;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
 @RestController
 public class SongController {
 
     @Autowired
     private SongService songService;
     
-    @Value("${MUSIC_SERVICE_URL:https://musicbrainz.org/ws/2/recording/}")
-    private String musicServiceUrl;
+    @Autowired
+    private SongFetcher songFetcher;
+    
+    @Autowired
+    private SongFreshnessPolicy freshnessPolicy;
+    
+    @Autowired
+    private SongRefresher songRefresher;
+
+    @Autowired
+    private RequestPhases requestPhases;
+
+    @Autowired
+    private SongSearchIndex songSearchIndex;
     
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private static final Logger logger = LoggerFactory.getLogger(SongController.class);
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+
+    // How a lookup was answered, the only attribute on songs.lookups so cardinality stays fixed
+    private enum Outcome { HIT, MISS, NOT_FOUND, UPSTREAM_ERROR, EXPIRED_FALLBACK }
+
+    // song is set whenever the body is that song, so the response can carry its validators
+    private record Lookup(byte[] body, Outcome outcome, Song song) {
+
+        Lookup(byte[] body, Outcome outcome) {
+            this(body, outcome, null);
+        }
+    }
+
+    // Concurrent misses for the same song share one MusicBrainz fetch and one insert
+    private final SingleFlight<SongKey, Lookup> songLookups;
+
+    private final LongCounter lookups;
+    private final Attributes[] outcomeAttributes = new Attributes[Outcome.values().length];
+
+    private final int batchMaxSize;
+    private final int batchParallelism;
+    private final int searchDefaultResults;
+    private final int searchMaxResults;
+
+    public SongController(
+            @Value("${songs.lookup.max-waiters:1000}") int maxWaiters,
+            @Value("${songs.lookup.timeout:30s}") Duration timeout,
+            @Value("${songs.batch.max-size:1000}") int batchMaxSize,
+            @Value("${songs.batch.parallelism:8}") int batchParallelism,
+            @Value("${songs.search.default-results:10}") int searchDefaultResults,
+            @Value("${songs.search.max-results:50}") int searchMaxResults) {
+        this.songLookups = new SingleFlight<>("song_lookup", maxWaiters, timeout);
+        this.batchMaxSize = batchMaxSize;
+        this.batchParallelism = batchParallelism;
+        this.searchDefaultResults = searchDefaultResults;
+        this.searchMaxResults = searchMaxResults;
+
+        this.lookups = GlobalOpenTelemetry.getMeter("com.slct.demo").counterBuilder("songs.lookups")
+            .setDescription("Number of song lookups by outcome")
+            .build();
+        for (Outcome outcome : Outcome.values()) {
+            outcomeAttributes[outcome.ordinal()] = Attributes.of(OUTCOME, outcome.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @PostConstruct
+    void registerRefresh() {
+        songRefresher.setRefresh(this::refreshSong);
+    }
 
     @GetMapping("/songs/{title}/{artist}")
-    public String getSongs(@PathVariable String title, @PathVariable String artist) {        
+    public void getSongs(@PathVariable String title, @PathVariable String artist, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Lookup lookup = lookup(title, artist);
+        count(lookup.outcome());
+
+        // A client polling a song it already has gets a 304 with no body. A cached song answers
+        // this without the database, and its encoded body is never copied out.
+        Song song = lookup.song();
+        if (song != null && song.getCachedAt() != null
+                && new ServletWebRequest(request, response).checkNotModified(song.etag(), song.getCachedAt().toEpochMilli())) {
+            return;
+        }
+        writeJson(response, lookup.body());
+    }
+
+    // Autocomplete and typo-tolerant matching over the songs known to this replica, answered
+    // from memory. Only when nothing matches and an artist is given is MusicBrainz asked, with
+    // the query taken as the title: its recording search needs both.
+    @GetMapping("/songs/search")
+    public void searchSongs(@RequestParam("q") String query, @RequestParam(required = false) String artist,
+            @RequestParam(required = false) Integer limit, HttpServletResponse response) throws IOException {
+        if (query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query must not be blank");
+        }
+        int size = limit != null ? Math.min(Math.max(limit, 1), searchMaxResults) : searchDefaultResults;
+
+        List<Result> results = songSearchIndex.search(query, artist, size);
+        if (!results.isEmpty() || artist == null || artist.isBlank()) {
+            writeJson(response, SongJson.searchResults(results));
+            return;
+        }
+
+        Lookup lookup = lookup(query.strip(), artist.strip());
+        count(lookup.outcome());
+        boolean found = lookup.outcome() == Outcome.HIT || lookup.outcome() == Outcome.MISS
+            || lookup.outcome() == Outcome.EXPIRED_FALLBACK;
+        writeJson(response, found ? SongJson.array(lookup.body()) : SongJson.searchResults(List.of()));
+    }
+
+    private Lookup lookup(String title, String artist) {
+        long start = System.nanoTime();
         Song song = songService.getSongFromDatabase(title, artist);
+        requestPhases.record(Phase.DB_READ, start);
 
-        if (song != null) {
-            return String.format("{\"title\":\"%s\",\"artist\":\"%s\",\"album\":\"%s\",\"year\":%s,\"duration_ms\":%s,\"genre\":\"%s\"}", 
-                               song.getTitle(), song.getArtist(), song.getAlbum(), song.getYear(), song.getDurationMs(), song.getGenre());
-        } else {
-            try {
-                String url = String.format("%s?query=recording:\"%s\" AND artist:\"%s\"&fmt=json&limit=20", 
-                    musicServiceUrl, title, artist);
-                HttpHeaders headers = new HttpHeaders();
-                headers.set("User-Agent", "otel-demo/1.0");
-                
-                HttpEntity<String> entity = new HttpEntity<>(headers);
-                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-                
-                // Parse the JSON response and save to database
-                try {
-                    JsonNode jsonNode = objectMapper.readTree(response.getBody());
-                    JsonNode recordings = jsonNode.get("recordings");
-                    if (recordings != null && recordings.isArray() && recordings.size() > 0) {
-                        
-                        // Find the best recording - prioritize studio albums over live recordings
-                        JsonNode bestRecording = null;
-                        Integer bestYear = null;
-                        boolean foundStudioAlbum = false;
-                        
-                        for (JsonNode recording : recordings) {
-                            JsonNode releases = recording.get("releases");
-                            if (releases != null && releases.isArray() && releases.size() > 0) {
-                                
-                                // Check if this recording has any official studio releases
-                                boolean hasStudioRelease = false;
-                                Integer earliestYear = null;
-                                
-                                for (JsonNode release : releases) {
-                                    if (release.has("date")) {
-                                        String releaseDate = release.get("date").asText();
-                                        Integer releaseYear = extractYear(releaseDate);
-                                        
-                                        if (releaseYear != null) {
-                                            // Check if this is likely a studio album (not live/compilation)
-                                            String albumTitle = release.has("title") ? release.get("title").asText().toLowerCase() : "";
-                                            boolean isLive = albumTitle.contains("live") || albumTitle.contains("concert") || 
-                                                           albumTitle.contains("stage") || albumTitle.contains("tour") ||
-                                                           releaseDate.matches(".*\\d{4}-\\d{2}-\\d{2}.*"); // Specific dates often indicate live shows
-                                            
-                                            if (!isLive) {
-                                                hasStudioRelease = true;
-                                            }
-                                            
-                                            if (earliestYear == null || releaseYear < earliestYear) {
-                                                earliestYear = releaseYear;
-                                            }
-                                        }
-                                    }
-                                }
-                                
-                                // Prioritize studio releases, then earliest year
-                                boolean shouldUpdate = false;
-                                if (bestRecording == null) {
-                                    shouldUpdate = true;
-                                } else if (!foundStudioAlbum && hasStudioRelease) {
-                                    shouldUpdate = true; // First studio release found
-                                } else if (foundStudioAlbum == hasStudioRelease && earliestYear != null && 
-                                          (bestYear == null || earliestYear < bestYear)) {
-                                    shouldUpdate = true; // Same type but earlier year
-                                }
-                                
-                                if (shouldUpdate && earliestYear != null) {
-                                    bestYear = earliestYear;
-                                    bestRecording = recording;
-                                    foundStudioAlbum = hasStudioRelease;
-                                }
-                            }
-                        }
-                        
-                        // If no recording with release date found, use the first one
-                        JsonNode selectedRecording = bestRecording != null ? bestRecording : recordings.get(0);
-                        
-                        Integer durationMs = selectedRecording.has("length") ? selectedRecording.get("length").asInt() : null;
-                        
-                        // Try to get album and year from the best studio release
-                        String album = "Unknown";
-                        Integer year = null;
-                        JsonNode releases = selectedRecording.get("releases");
-                        if (releases != null && releases.isArray() && releases.size() > 0) {
-                            // Find the best studio release for this recording
-                            JsonNode bestRelease = null;
-                            Integer bestReleaseYear = null;
-                            boolean foundStudioRelease = false;
-                            
-                            for (JsonNode release : releases) {
-                                if (release.has("date")) {
-                                    String releaseDate = release.get("date").asText();
-                                    Integer releaseYear = extractYear(releaseDate);
-                                    String albumTitle = release.has("title") ? release.get("title").asText().toLowerCase() : "";
-                                    
-                                    boolean isLive = albumTitle.contains("live") || albumTitle.contains("concert") || 
-                                                   albumTitle.contains("stage") || albumTitle.contains("tour") ||
-                                                   releaseDate.matches(".*\\d{4}-\\d{2}-\\d{2}.*");
-                                    
-                                    boolean shouldUpdate = false;
-                                    if (bestRelease == null) {
-                                        shouldUpdate = true;
-                                    } else if (!foundStudioRelease && !isLive) {
-                                        shouldUpdate = true; // First studio release found
-                                    } else if (foundStudioRelease == !isLive && releaseYear != null && 
-                                              (bestReleaseYear == null || releaseYear < bestReleaseYear)) {
-                                        shouldUpdate = true; // Same type but earlier year
-                                    }
-                                    
-                                    if (shouldUpdate && releaseYear != null) {
-                                        bestReleaseYear = releaseYear;
-                                        bestRelease = release;
-                                        foundStudioRelease = !isLive;
-                                    }
-                                }
-                            }
-                            
-                            // Use the best release or first release if no dates found
-                            JsonNode targetRelease = bestRelease != null ? bestRelease : releases.get(0);
-                            
-                            if (targetRelease.has("title")) {
-                                album = targetRelease.get("title").asText();
-                            }
-                            if (targetRelease.has("date")) {
-                                String date = targetRelease.get("date").asText();
-                                year = extractYear(date);
-                            }
-                        }
-                        
-                        // Try to get genre from tags - search all recordings if needed
-                        String genre = "Unknown";
-                        JsonNode tags = selectedRecording.get("tags");
-                        if (tags != null && tags.isArray() && tags.size() > 0) {
-                            genre = tags.get(0).get("name").asText();
-                        } else {
-                            // Look through all recordings for tags
-                            for (JsonNode recording : recordings) {
-                                JsonNode recordingTags = recording.get("tags");
-                                if (recordingTags != null && recordingTags.isArray() && recordingTags.size() > 0) {
-                                    genre = recordingTags.get(0).get("name").asText();
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        // Save to database
-                        Song savedSong = songService.saveSong(title, artist, album, year, durationMs, genre);
-                        
-                        return String.format("{\"title\":\"%s\",\"artist\":\"%s\",\"album\":\"%s\",\"year\":%s,\"duration_ms\":%s,\"genre\":\"%s\"}", 
-                                           savedSong.getTitle(), savedSong.getArtist(), savedSong.getAlbum(), savedSong.getYear(), savedSong.getDurationMs(), savedSong.getGenre());
-                    } else {
-                        return String.format("{\"message\":\"Song not found for title: %s, artist: %s\"}", 
-                                           title, artist);
-                    }
-                } catch (Exception e) {
-                    // Return basic song info even if saving fails
-                    return String.format("{\"title\":\"%s\",\"artist\":\"%s\",\"album\":\"Unknown\",\"year\":null,\"duration_ms\":null,\"genre\":\"Unknown\"}", 
-                                       title, artist);
+        // Songs past the hard TTL are refetched like a miss
+        if (song != null && !freshnessPolicy.isExpired(song)) {
+            if (freshnessPolicy.isStale(song)) {
+                songRefresher.schedule(song);
+            }
+            return new Lookup(song.toJson(), Outcome.HIT, song);
+        } else if (song == null && songService.isKnownMissing(title, artist)) {
+            return new Lookup(SongJson.notFound(title, artist), Outcome.NOT_FOUND);
+        }
+        Song expired = song;
+        try {
+            return songLookups.execute(SongKey.of(title, artist), () -> fetchSong(title, artist, expired));
+        } catch (Exception e) {
+            return new Lookup(SongJson.error(title, artist, e.getMessage()), Outcome.UPSTREAM_ERROR);
+        }
+    }
+
+    // Streams one JSON document per line (NDJSON): stored songs first, then MusicBrainz
+    // results as they arrive
+    @PostMapping("/songs/batch")
+    public void getSongsBatch(@RequestBody List<SongRequest> requests, HttpServletResponse response) throws IOException {
+        if (requests.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch size must not exceed " + batchMaxSize);
+        }
+
+        Map<SongKey, SongRequest> pending = new LinkedHashMap<>();
+        for (SongRequest request : requests) {
+            if (request.title() == null || request.artist() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every entry needs a title and an artist");
+            }
+            pending.putIfAbsent(SongKey.of(request.title(), request.artist()), request);
+        }
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        NdjsonWriter writer = new NdjsonWriter(response.getOutputStream());
+
+        long start = System.nanoTime();
+        Map<SongKey, Song> stored = songService.getSongsFromDatabase(pending.keySet());
+        requestPhases.record(Phase.DB_READ, start);
+        List<SongRequest> misses = new ArrayList<>();
+        Map<SongRequest, Song> expired = new HashMap<>();
+        for (Map.Entry<SongKey, SongRequest> entry : pending.entrySet()) {
+            SongRequest request = entry.getValue();
+            Song song = stored.get(entry.getKey());
+            if (song != null && !freshnessPolicy.isExpired(song)) {
+                if (freshnessPolicy.isStale(song)) {
+                    songRefresher.schedule(song);
+                }
+                count(Outcome.HIT);
+                writer.write(song.toJson());
+            } else if (song == null && songService.isKnownMissing(request.title(), request.artist())) {
+                count(Outcome.NOT_FOUND);
+                writer.write(SongJson.notFound(request.title(), request.artist()));
+            } else {
+                misses.add(request);
+                if (song != null) {
+                    expired.put(request, song);
                 }
-            } catch (Exception e) {
-                return String.format("{\"error\":\"Song not found for title: %s, artist: %s, external service error: %s\"}", 
-                                   title, artist, e.getMessage());
             }
         }
+        writer.flush();
+
+        fetchSongs(misses, expired, writer);
     }
-    
-    private Integer extractYear(String dateString) {
-        if (dateString == null || dateString.trim().isEmpty()) {
-            return null;
+
+    // Fetches the misses from MusicBrainz with at most batchParallelism calls in flight
+    private void fetchSongs(List<SongRequest> misses, Map<SongRequest, Song> expired, NdjsonWriter writer) {
+        Semaphore permits = new Semaphore(batchParallelism);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SongRequest miss : misses) {
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        Lookup lookup = fetchForBatch(miss, expired.get(miss));
+                        count(lookup.outcome());
+                        writer.writeAndFlush(lookup.body());
+                    } catch (IOException e) {
+                        // The client went away, keep going: each song is saved as soon as it's fetched
+                        logger.debug("Could not stream batch result for {}", miss, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    // Same flight and save as a single lookup, so a song is cached and queued for writing as
+    // soon as it's fetched, and a concurrent GET for it joins instead of calling MusicBrainz
+    private Lookup fetchForBatch(SongRequest request, Song expired) {
+        String title = request.title();
+        String artist = request.artist();
+        try {
+            return songLookups.execute(SongKey.of(title, artist), () -> fetchSong(title, artist, expired));
+        } catch (Exception e) {
+            return fallback(title, artist, expired, e);
+        }
+    }
+
+    // Bodies are already encoded, so they skip message converters and charset encoding
+    private static void writeJson(HttpServletResponse response, byte[] body) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // When MusicBrainz can't be reached, or the call was turned away to protect it, a song past
+    // its hard TTL is still a better answer than an error
+    private Lookup fallback(String title, String artist, Song expired, Exception e) {
+        if (expired != null) {
+            logger.debug("Serving expired {} by {} after failed refetch: {}", title, artist, e.getMessage());
+            return new Lookup(expired.toJson(), Outcome.EXPIRED_FALLBACK, expired);
+        }
+        return new Lookup(SongJson.error(title, artist, e.getMessage()), Outcome.UPSTREAM_ERROR);
+    }
+
+    private void count(Outcome outcome) {
+        lookups.add(1, outcomeAttributes[outcome.ordinal()]);
+    }
+
+    // No database connection is held here: the read phase has finished and the write phase
+    // only starts once MusicBrainz has answered
+    private RecordingMatch fetchMatch(String title, String artist) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            return songFetcher.fetch(title, artist);
+        } finally {
+            requestPhases.record(Phase.UPSTREAM_FETCH, start);
         }
-        
+    }
+
+    private Lookup fetchSong(String title, String artist, Song expired) {
         try {
-            // Handle various date formats: YYYY, YYYY-MM, YYYY-MM-DD
-            String[] parts = dateString.split("-");
-            if (parts.length > 0 && parts[0].length() == 4) {
-                return Integer.parseInt(parts[0]);
+            RecordingMatch match = fetchMatch(title, artist);
+            
+            try {
+                if (match != null) {
+                    // Save to database
+                    long start = System.nanoTime();
+                    Song savedSong = songService.saveSong(title, artist, match.album(), match.year(), match.durationMs(), match.genre());
+                    requestPhases.record(Phase.DB_WRITE, start);
+                    
+                    return new Lookup(savedSong.toJson(), Outcome.MISS, savedSong);
+                } else {
+                    songService.markNotFound(title, artist);
+                    return new Lookup(SongJson.notFound(title, artist), Outcome.NOT_FOUND);
+                }
+            } catch (Exception e) {
+                // Return basic song info even if saving fails
+                return new Lookup(SongJson.basicSong(title, artist), Outcome.MISS);
             }
-        } catch (NumberFormatException e) {
-            logger.debug("Could not parse year from date string: {}", dateString);
+        } catch (Exception e) {
+            return fallback(title, artist, expired, e);
+        }
+    }
+
+    // A background refresh takes the same flight as a GET miss, so whichever starts second
+    // waits for the other's fetch instead of calling MusicBrainz again
+    private SongRefresher.RefreshOutcome refreshSong(Song stale) {
+        String title = stale.getTitle();
+        String artist = stale.getArtist();
+        Lookup lookup = songLookups.execute(SongKey.of(title, artist), () -> fetchSong(title, artist, null));
+        if (lookup.outcome() == Outcome.NOT_FOUND) {
+            return SongRefresher.RefreshOutcome.NOT_FOUND;
+        }
+        // A song that couldn't be saved comes back as a MISS without one
+        return lookup.song() != null ? SongRefresher.RefreshOutcome.REFRESHED : SongRefresher.RefreshOutcome.ERROR;
+    }
+
+    private static final class NdjsonWriter {
+
+        private final OutputStream out;
+
+        private NdjsonWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        private synchronized void write(byte[] line) throws IOException {
+            out.write(line);
+            out.write('\n');
+        }
+
+        private synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        private synchronized void writeAndFlush(byte[] line) throws IOException {
+            write(line);
+            out.flush();
         }
-        
-        return null;
     }
 }
@@ -0,0 +1,141 @@
+package com.slct.demo;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.slct.demo.MusicBrainzResponseParser.RecordingMatch;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PreDestroy;
+
+// Looks a song up on MusicBrainz and picks the best matching recording. The call and the
+// parsing run on a separate executor behind a bulkhead, so a slow MusicBrainz ties up at
+// most songs.fetch.bulkhead.max-concurrent fetches and callers are turned away beyond that.
+@Component
+public class SongFetcher {
+
+    static final String BULKHEAD_FULL = "bulkhead_full";
+
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    private static final Attributes SUCCESS = Attributes.of(OUTCOME, "success");
+    private static final Attributes REJECTED = Attributes.of(OUTCOME, "rejected");
+    private static final Attributes ERROR = Attributes.of(OUTCOME, "error");
+
+    @Autowired
+    private MusicServiceClient musicServiceClient;
+
+    @Autowired
+    private MusicBrainzGuard musicBrainzGuard;
+
+    private final MusicBrainzResponseParser responseParser = new MusicBrainzResponseParser(new JsonFactory());
+
+    private final ExecutorService fetchExecutor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("song-fetch-", 0).factory());
+    private final Semaphore bulkhead;
+
+    private final DoubleHistogram fetchDuration;
+    private final DoubleHistogram parseDuration;
+
+    public SongFetcher(@Value("${songs.fetch.bulkhead.max-concurrent:64}") int maxConcurrent) {
+        this.bulkhead = new Semaphore(maxConcurrent);
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.fetchDuration = meter.histogramBuilder("songs.upstream.fetch.duration")
+            .setDescription("Duration of MusicBrainz recording searches, including rate limiter waits")
+            .setUnit("s")
+            .setExplicitBucketBoundariesAdvice(LatencyBuckets.UPSTREAM)
+            .build();
+        // Parsing and recording selection happen in the same streaming pass
+        this.parseDuration = meter.histogramBuilder("songs.upstream.parse.duration")
+            .setDescription("Duration of parsing a MusicBrainz response and selecting the best recording")
+            .setUnit("s")
+            .setExplicitBucketBoundariesAdvice(LatencyBuckets.IN_PROCESS)
+            .build();
+        meter.upDownCounterBuilder("songs.fetch.in_flight")
+            .setDescription("Number of MusicBrainz lookups holding a bulkhead slot, waiting or running")
+            .buildWithCallback(measurement -> measurement.record(maxConcurrent - bulkhead.availablePermits()));
+    }
+
+    @PreDestroy
+    void stop() {
+        fetchExecutor.shutdownNow();
+    }
+
+    // Returns null when MusicBrainz doesn't know the song. Throws UpstreamRejectedException
+    // when the call was turned away to protect MusicBrainz.
+    public RecordingMatch fetch(String title, String artist) throws IOException, InterruptedException {
+        if (!bulkhead.tryAcquire()) {
+            throw musicBrainzGuard.reject(BULKHEAD_FULL, "Too many MusicBrainz lookups in progress");
+        }
+
+        Future<RecordingMatch> result;
+        try {
+            result = fetchExecutor.submit(() -> {
+                try {
+                    byte[] body = search(title, artist);
+                    long start = System.nanoTime();
+                    RecordingMatch match = responseParser.parse(body);
+                    parseDuration.record(seconds(start));
+                    return match;
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            throw new IOException("Song fetcher is shutting down", e);
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof InterruptedException interrupted) {
+                throw interrupted;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private byte[] search(String title, String artist) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Attributes outcome = ERROR;
+        try {
+            byte[] body = musicBrainzGuard.call(() -> musicServiceClient.searchRecordings(title, artist));
+            outcome = SUCCESS;
+            return body;
+        } catch (UpstreamRejectedException e) {
+            outcome = REJECTED;
+            throw e;
+        } finally {
+            fetchDuration.record(seconds(start), outcome);
+        }
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000d;
+    }
+}
@@ -0,0 +1,36 @@
+package com.slct.demo;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Songs older than the soft TTL are served as-is and refreshed in the background,
+// songs older than the hard TTL are refetched before responding.
+@Component
+public class SongFreshnessPolicy {
+
+    private final Duration softTtl;
+    private final Duration hardTtl;
+
+    public SongFreshnessPolicy(
+            @Value("${songs.freshness.soft-ttl:7d}") Duration softTtl,
+            @Value("${songs.freshness.hard-ttl:90d}") Duration hardTtl) {
+        this.softTtl = softTtl;
+        this.hardTtl = hardTtl;
+    }
+
+    public boolean isStale(Song song) {
+        return isOlderThan(song, softTtl);
+    }
+
+    public boolean isExpired(Song song) {
+        return isOlderThan(song, hardTtl);
+    }
+
+    private static boolean isOlderThan(Song song, Duration ttl) {
+        Instant cachedAt = song.getCachedAt();
+        return cachedAt != null && cachedAt.plus(ttl).isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,498 @@
+package com.slct.demo;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+// Bulk load of a song catalog, for seeding an environment or backfilling a partner catalog
+// without going through the service one song at a time. Songs are read from CSV (with a
+// header row) or JSON Lines, streamed into a temporary staging table with COPY and merged
+// into songs every --chunk rows, each chunk in its own transaction. Rows go to the server as
+// they are read, so memory use doesn't depend on the size of the input or of a chunk.
+//
+// Existing songs are left alone unless --update-existing=true, in which case their metadata
+// is replaced like a refetch from MusicBrainz would. Every merged row fires songs_changed, so
+// running replicas pick the songs up as they are committed.
+//
+// ./gradlew importSongs --args='--file=songs.csv --spring.datasource.url=jdbc:postgresql://localhost:5432/songs_db'
+public class SongImport {
+
+    static final List<String> COLUMNS = List.of("title", "artist", "album", "year", "duration_ms", "genre");
+
+    private static final String STAGING_SQL = """
+        CREATE TEMPORARY TABLE songs_import (
+            line BIGINT NOT NULL,
+            title TEXT NOT NULL,
+            artist TEXT NOT NULL,
+            album TEXT,
+            year INT,
+            duration_ms INT,
+            genre TEXT,
+            lookup_key TEXT GENERATED ALWAYS AS
+                (lower(title COLLATE "pg_c_utf8") || chr(31) || lower(artist COLLATE "pg_c_utf8")) STORED
+        ) ON COMMIT DELETE ROWS
+        """;
+    private static final String COPY_SQL =
+        "COPY songs_import (line, title, artist, album, year, duration_ms, genre) FROM STDIN (FORMAT csv)";
+
+    // lookup_key covers unique_title_artist too: equal (title, artist) means equal lookup_key.
+    // The staging table generates it like songs does, so a song repeated within a chunk keeps
+    // its last line; ON CONFLICT can't touch a row twice.
+    private static final String MERGE_SQL = """
+        INSERT INTO songs (title, artist, album, year, duration_ms, genre, cached_at)
+        SELECT DISTINCT ON (lookup_key) title, artist, album, year, duration_ms, genre, now()
+        FROM songs_import
+        ORDER BY lookup_key, line DESC
+        ON CONFLICT (lookup_key) DO
+        """;
+    private static final String SKIP_EXISTING = "NOTHING";
+    private static final String UPDATE_EXISTING = """
+        UPDATE SET
+            album = EXCLUDED.album,
+            year = EXCLUDED.year,
+            duration_ms = EXCLUDED.duration_ms,
+            genre = EXCLUDED.genre,
+            cached_at = EXCLUDED.cached_at
+        """;
+
+    // Match the VARCHAR(255) text columns and VARCHAR(511) lookup_key, in characters (code
+    // points) as PostgreSQL counts them; a longer value would fail the whole chunk
+    private static final int MAX_LENGTH = 255;
+    private static final int MAX_LOOKUP_KEY_LENGTH = 511;
+    private static final int COPY_BUFFER = 1 << 16;
+    private static final long PROGRESS_NANOS = 5_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String file = required(options, "file");
+        String format = options.getOrDefault("format",
+            file.endsWith(".jsonl") || file.endsWith(".ndjson") ? "jsonl" : "csv");
+        int chunk = Integer.parseInt(options.getOrDefault("chunk", "100000"));
+        boolean updateExisting = Boolean.parseBoolean(options.getOrDefault("update-existing", "false"));
+        String url = option(options, "spring.datasource.url", "jdbc:postgresql://localhost:5432/songs_db");
+        String username = option(options, "spring.datasource.username", "postgres");
+        String password = option(options, "spring.datasource.password", "password");
+
+        Reader input = file.equals("-")
+            ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+            : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8);
+        try (SongSource source = switch (format) {
+                case "csv" -> new CsvSource(input);
+                case "jsonl" -> new JsonLinesSource(input);
+                default -> throw new IllegalArgumentException("Unknown format " + format + ", expected csv or jsonl");
+            };
+            Connection connection = DriverManager.getConnection(url, username, password)) {
+            new SongImport(connection, chunk, updateExisting).run(source);
+        }
+    }
+
+    private final Connection connection;
+    private final int chunk;
+    private final String mergeSql;
+
+    private long read;
+    private long skipped;
+    private long merged;
+
+    SongImport(Connection connection, int chunk, boolean updateExisting) {
+        this.connection = connection;
+        this.chunk = chunk;
+        this.mergeSql = MERGE_SQL + (updateExisting ? UPDATE_EXISTING : SKIP_EXISTING);
+    }
+
+    void run(SongSource source) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long lastProgress = start;
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(STAGING_SQL);
+        }
+        connection.commit();
+
+        CopyBuffer copy = new CopyBuffer();
+        CopyIn copyIn = null;
+        int staged = 0;
+        try {
+            String[] song;
+            while ((song = source.next()) != null) {
+                read++;
+                if (!copy.add(source.line(), song)) {
+                    skipped++;
+                    continue;
+                }
+                if (copyIn == null) {
+                    copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+                }
+                copy.flushIfFull(copyIn);
+                if (++staged == chunk) {
+                    merge(copy, copyIn);
+                    copyIn = null;
+                    staged = 0;
+                    if (System.nanoTime() - lastProgress > PROGRESS_NANOS) {
+                        lastProgress = System.nanoTime();
+                        progress("Progress:", start);
+                    }
+                }
+            }
+            if (copyIn != null) {
+                merge(copy, copyIn);
+                copyIn = null;
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            if (copyIn != null && copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            connection.rollback();
+            throw e;
+        }
+        progress("Finished:", start);
+    }
+
+    // Ends the chunk's COPY and merges it in one transaction, whose commit also empties the
+    // staging table again
+    private void merge(CopyBuffer copy, CopyIn copyIn) throws SQLException {
+        copy.flush(copyIn);
+        copyIn.endCopy();
+        try (Statement statement = connection.createStatement()) {
+            merged += statement.executeUpdate(mergeSql);
+        }
+        connection.commit();
+    }
+
+    private void progress(String label, long start) {
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        System.out.printf(Locale.ROOT, "%s %,d rows read, %,d merged, %,d skipped in %.1f s (%,.0f rows/s)%n",
+            label, read, merged, skipped, seconds, read / Math.max(seconds, 0.001));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name + "=<path to a .csv or .jsonl file, or - for stdin>");
+        }
+        return value;
+    }
+
+    // Command line first, then the environment variables the service itself is configured with
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            value = System.getenv(name.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    // Rows of the staging table in COPY's CSV format: every value quoted, an unquoted empty
+    // field is NULL. Values are validated here so one bad row can't fail a chunk.
+    static final class CopyBuffer {
+
+        private final StringBuilder rows = new StringBuilder(COPY_BUFFER);
+
+        // The rows buffered since the last flush, as they'll be sent
+        @Override
+        public String toString() {
+            return rows.toString();
+        }
+
+        boolean add(long line, String[] song) {
+            String title = song[0];
+            String artist = song[1];
+            if (title == null || artist == null || title.isBlank() || artist.isBlank()
+                    || tooLong(title) || tooLong(artist) || tooLong(song[2]) || tooLong(song[5])) {
+                return false;
+            }
+            // lower() maps code point to code point, so lookup_key is title, separator and artist long
+            if (length(title) + 1 + length(artist) > MAX_LOOKUP_KEY_LENGTH) {
+                return false;
+            }
+            Integer year;
+            Integer durationMs;
+            try {
+                year = number(song[3]);
+                durationMs = number(song[4]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+
+            int mark = rows.length();
+            rows.append(line).append(',');
+            if (!value(title) || !value(artist) || !value(song[2])) {
+                rows.setLength(mark);
+                return false;
+            }
+            rows.append(year != null ? year.toString() : "").append(',');
+            rows.append(durationMs != null ? durationMs.toString() : "").append(',');
+            if (!value(song[5])) {
+                rows.setLength(mark);
+                return false;
+            }
+            rows.setLength(rows.length() - 1);
+            rows.append('\n');
+            return true;
+        }
+
+        void flushIfFull(CopyIn copyIn) throws SQLException {
+            if (rows.length() >= COPY_BUFFER) {
+                flush(copyIn);
+            }
+        }
+
+        // Only whole rows are buffered, so a flush never splits a character
+        void flush(CopyIn copyIn) throws SQLException {
+            byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            rows.setLength(0);
+        }
+
+        // Quoted with doubled quotes, or nothing for NULL. PostgreSQL text can't hold NUL.
+        private boolean value(String value) {
+            if (value != null) {
+                if (value.indexOf('\0') >= 0) {
+                    return false;
+                }
+                rows.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        rows.append('"');
+                    }
+                    rows.append(c);
+                }
+                rows.append('"');
+            }
+            rows.append(',');
+            return true;
+        }
+
+        private static boolean tooLong(String value) {
+            return value != null && length(value) > MAX_LENGTH;
+        }
+
+        private static int length(String value) {
+            return value.codePointCount(0, value.length());
+        }
+
+        private static Integer number(String value) {
+            return value == null || value.isBlank() ? null : Integer.valueOf(value.strip());
+        }
+    }
+
+    // Songs as { title, artist, album, year, duration_ms, genre }, missing values as null
+    interface SongSource extends Closeable {
+
+        String[] next() throws IOException;
+
+        // Input line of the song last returned, for ordering repeats
+        long line();
+    }
+
+    // RFC 4180: quoted fields may hold commas, doubled quotes and line breaks. The header row
+    // names the columns, in any order; unknown columns are ignored.
+    static final class CsvSource implements SongSource {
+
+        private final Reader in;
+        private final int[] positions = new int[COLUMNS.size()];
+        private long line;
+        private long songLine;
+        private int pending = -2;
+
+        CsvSource(Reader in) throws IOException {
+            this.in = in instanceof BufferedReader ? in : new BufferedReader(in, COPY_BUFFER);
+            List<String> header = record();
+            if (header == null) {
+                throw new IOException("CSV input is empty, expected a header row");
+            }
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = header.indexOf(COLUMNS.get(i));
+            }
+            if (positions[0] < 0 || positions[1] < 0) {
+                throw new IOException("CSV header needs title and artist columns, got " + header);
+            }
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            List<String> record;
+            do {
+                record = record();
+                if (record == null) {
+                    return null;
+                }
+            } while (record.size() == 1 && record.get(0).isEmpty());
+
+            String[] song = new String[COLUMNS.size()];
+            for (int i = 0; i < song.length; i++) {
+                if (positions[i] >= 0 && positions[i] < record.size()) {
+                    String value = record.get(positions[i]);
+                    song[i] = value.isEmpty() ? null : value;
+                }
+            }
+            return song;
+        }
+
+        @Override
+        public long line() {
+            return songLine;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private List<String> record() throws IOException {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            songLine = ++line;
+            List<String> fields = new ArrayList<>(COLUMNS.size());
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        throw new IOException("Unterminated quoted field in CSV record starting at line " + songLine);
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c < 0) {
+                    break;
+                } else if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pending = next;
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return in.read();
+        }
+    }
+
+    // One JSON object per line, with the keys of the service's own song responses
+    static final class JsonLinesSource implements SongSource {
+
+        private static final JsonFactory JSON = new JsonFactory();
+
+        // A line that isn't a JSON object has no title, so it's counted as skipped
+        private static final String[] MALFORMED = new String[COLUMNS.size()];
+
+        private final BufferedReader in;
+        private long line;
+
+        JsonLinesSource(Reader in) {
+            this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in, COPY_BUFFER);
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+
+            String[] song = new String[COLUMNS.size()];
+            try (JsonParser parser = JSON.createParser(text)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return MALFORMED;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    int column = COLUMNS.indexOf(parser.currentName());
+                    JsonToken value = parser.nextToken();
+                    if (value.isStructStart()) {
+                        parser.skipChildren();
+                    } else if (column >= 0 && value != JsonToken.VALUE_NULL) {
+                        song[column] = parser.getText();
+                    }
+                }
+                // A line cut off mid-object ends without END_OBJECT
+                if (parser.currentToken() != JsonToken.END_OBJECT) {
+                    return MALFORMED;
+                }
+            } catch (JsonProcessingException e) {
+                return MALFORMED;
+            }
+            return song;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
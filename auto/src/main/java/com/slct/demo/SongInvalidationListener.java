@@ -0,0 +1,238 @@
+package com.slct.demo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Keeps the per-replica caches coherent across replicas. The songs_changed trigger (see
+// songs-db/init-songs-db.sh) notifies on every insert and update; this listener holds its own
+// connection outside the pool, gathers notifications for songs.invalidation.debounce after
+// the first one of a burst and then invalidates the batch. Notifications sent while it was
+// disconnected are lost, so after a reconnect it reconciles from cached_at instead.
+@Component
+public class SongInvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongInvalidationListener.class);
+
+    static final String CHANNEL = "songs_changed";
+
+    private static final String CHANGES_SQL = "SELECT lookup_key, cached_at FROM songs WHERE cached_at > ?";
+    private static final int POLL_MILLIS = 1_000;
+    private static final Duration KEEPALIVE = Duration.ofSeconds(30);
+
+    @Autowired
+    private SongCache songCache;
+
+    @Autowired
+    private SongCatalog songCatalog;
+
+    @Autowired
+    private SongSearchIndex songSearchIndex;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final boolean enabled;
+    private final Duration debounce;
+    private final int maxBatch;
+    private final Duration reconnectDelay;
+    private final Thread listener;
+    private volatile boolean running = true;
+
+    // Every change committed before this instant has been applied
+    private Instant appliedUpTo;
+
+    private final LongCounter notifications;
+    private final LongHistogram batchSizes;
+    private final LongCounter reconnects;
+
+    public SongInvalidationListener(
+            JdbcTemplate jdbcTemplate,
+            @Value("${spring.datasource.url:}") String url,
+            @Value("${spring.datasource.username:}") String username,
+            @Value("${spring.datasource.password:}") String password,
+            @Value("${songs.invalidation.enabled:true}") boolean enabled,
+            @Value("${songs.invalidation.debounce:50ms}") Duration debounce,
+            @Value("${songs.invalidation.max-batch:1000}") int maxBatch,
+            @Value("${songs.invalidation.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled && url.startsWith("jdbc:postgresql:");
+        this.debounce = debounce;
+        this.maxBatch = maxBatch;
+        this.reconnectDelay = reconnectDelay;
+        this.listener = new Thread(this::run, "song-invalidation");
+        this.listener.setDaemon(true);
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.notifications = meter.counterBuilder("songs.invalidation.notifications")
+            .setDescription("Number of song change notifications received from PostgreSQL")
+            .build();
+        this.batchSizes = meter.histogramBuilder("songs.invalidation.batch.size")
+            .setDescription("Number of distinct songs invalidated per debounced batch")
+            .setUnit("{song}")
+            .ofLongs()
+            .build();
+        this.reconnects = meter.counterBuilder("songs.invalidation.reconnects")
+            .setDescription("Number of times the notification connection was re-established")
+            .build();
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            listener.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        listener.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // From here on nothing is missed, so whatever changed while disconnected can be
+                // read back from the table
+                if (appliedUpTo != null) {
+                    reconnects.add(1);
+                    reconcile();
+                }
+                appliedUpTo = Instant.now();
+                listen(connection);
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Song invalidation connection lost, reconnecting in {}", reconnectDelay, e);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                logger.warn("Song invalidation failed, reconnecting in {}", reconnectDelay, e);
+            }
+
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException, InterruptedException {
+        PGConnection notificationSource = connection.unwrap(PGConnection.class);
+        Map<SongKey, Instant> pending = new HashMap<>();
+        long lastCheck = System.nanoTime();
+        while (running) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Instant polledAt = Instant.now();
+            if (!collect(notificationSource.getNotifications(POLL_MILLIS), pending)) {
+                // A dead connection can stay silent instead of failing the read
+                if (System.nanoTime() - lastCheck > KEEPALIVE.toNanos()) {
+                    if (!connection.isValid((int) KEEPALIVE.toSeconds())) {
+                        throw new SQLException("Notification connection is no longer valid");
+                    }
+                    lastCheck = System.nanoTime();
+                }
+                appliedUpTo = polledAt;
+                continue;
+            }
+
+            // Debounce: a write burst arrives as one batch instead of one invalidation per row
+            long deadline = System.nanoTime() + debounce.toNanos();
+            while (pending.size() < maxBatch) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                collect(notificationSource.getNotifications((int) remainingMillis), pending);
+            }
+            apply(pending);
+            pending.clear();
+            appliedUpTo = polledAt;
+        }
+    }
+
+    // Returns whether anything arrived; a song changed twice keeps the latest change
+    private boolean collect(PGNotification[] received, Map<SongKey, Instant> pending) {
+        if (received == null || received.length == 0) {
+            return false;
+        }
+        notifications.add(received.length);
+        for (PGNotification notification : received) {
+            String payload = notification.getParameter();
+            int separator = payload.indexOf(' ');
+            try {
+                Instant changedAt = CatalogSnapshot.fromMicros(Long.parseLong(payload, 0, separator, 10));
+                pending.merge(SongKey.fromLookupKey(payload.substring(separator + 1)), changedAt,
+                    (previous, next) -> next.isAfter(previous) ? next : previous);
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring malformed song change notification '{}'", payload);
+            }
+        }
+        return true;
+    }
+
+    private void reconcile() {
+        Map<SongKey, Instant> changed = new HashMap<>();
+        jdbcTemplate.query(CHANGES_SQL, rs -> {
+            changed.put(SongKey.fromLookupKey(rs.getString("lookup_key")), rs.getTimestamp("cached_at").toInstant());
+        }, Timestamp.from(appliedUpTo.minus(SongCatalog.CATCH_UP_OVERLAP)));
+        apply(changed);
+        logger.info("Reconciled {} song changes after reconnecting", changed.size());
+    }
+
+    // Songs saved by another replica are also new to the search index, which has to read them
+    // back since the notification only carries the key
+    private void apply(Map<SongKey, Instant> changed) {
+        List<String> unindexed = new ArrayList<>();
+        for (Map.Entry<SongKey, Instant> change : changed.entrySet()) {
+            songCache.invalidateOlderThan(change.getKey(), change.getValue());
+            songCatalog.supersede(change.getKey());
+            if (!songSearchIndex.contains(change.getKey())) {
+                unindexed.add(change.getKey().lookupKey());
+            }
+        }
+        if (!unindexed.isEmpty()) {
+            songSearchIndex.addAll(songRepository.findByLookupKeyIn(unindexed));
+        }
+        batchSizes.record(changed.size());
+    }
+}
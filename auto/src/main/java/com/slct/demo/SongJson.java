@@ -0,0 +1,114 @@
+package com.slct.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.slct.demo.SongSearchIndex.Result;
+
+// Hand-rolled, correctly escaped UTF-8 encoding of the song responses
+public final class SongJson {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private SongJson() {
+    }
+
+    public static byte[] encode(Song song) {
+        return song(song.getTitle(), song.getArtist(), song.getAlbum(), song.getYear(), song.getDurationMs(), song.getGenre());
+    }
+
+    // Basic song info returned when MusicBrainz answered but the song could not be saved
+    public static byte[] basicSong(String title, String artist) {
+        return song(title, artist, "Unknown", null, null, "Unknown");
+    }
+
+    public static byte[] notFound(String title, String artist) {
+        StringBuilder json = new StringBuilder(64 + title.length() + artist.length());
+        json.append("{\"message\":");
+        appendString(json, "Song not found for title: " + title + ", artist: " + artist);
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] error(String title, String artist, String message) {
+        StringBuilder json = new StringBuilder(128 + title.length() + artist.length());
+        json.append("{\"error\":");
+        appendString(json, "Song not found for title: " + title + ", artist: " + artist
+            + ", external service error: " + message);
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] searchResults(List<Result> results) {
+        StringBuilder json = new StringBuilder(2 + results.size() * 64);
+        json.append('[');
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"title\":");
+            appendString(json, results.get(i).title());
+            json.append(",\"artist\":");
+            appendString(json, results.get(i).artist());
+            json.append('}');
+        }
+        json.append(']');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // A single already encoded document as a one-element array
+    public static byte[] array(byte[] element) {
+        byte[] json = new byte[element.length + 2];
+        json[0] = '[';
+        System.arraycopy(element, 0, json, 1, element.length);
+        json[json.length - 1] = ']';
+        return json;
+    }
+
+    private static byte[] song(String title, String artist, String album, Integer year, Integer durationMs, String genre) {
+        StringBuilder json = new StringBuilder(96 + length(title) + length(artist) + length(album) + length(genre));
+        json.append("{\"title\":");
+        appendString(json, title);
+        json.append(",\"artist\":");
+        appendString(json, artist);
+        json.append(",\"album\":");
+        appendString(json, album);
+        json.append(",\"year\":").append(year);
+        json.append(",\"duration_ms\":").append(durationMs);
+        json.append(",\"genre\":");
+        appendString(json, genre);
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static int length(String value) {
+        return value == null ? 4 : value.length();
+    }
+}
@@ -0,0 +1,39 @@
+package com.slct.demo;
+
+public record SongKey(String title, String artist) {
+
+    // Case-insensitive key shared by the in-memory caches and the songs.lookup_key column
+    public static SongKey of(String title, String artist) {
+        return new SongKey(normalize(title), normalize(artist));
+    }
+
+    // Value of the songs.lookup_key column
+    public String lookupKey() {
+        return title + '\u001f' + artist;
+    }
+
+    // Inverse of lookupKey(), for keys read back from the database
+    public static SongKey fromLookupKey(String lookupKey) {
+        int separator = lookupKey.indexOf('\u001f');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Not a song lookup key: " + lookupKey);
+        }
+        return new SongKey(lookupKey.substring(0, separator), lookupKey.substring(separator + 1));
+    }
+
+    // Per code point simple case mapping, which is what lower() does under the pg_c_utf8
+    // collation the lookup_key column is generated with. String.toLowerCase would differ:
+    // it maps "\u0130" to two characters and a word-final sigma to "\u03c2".
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder lower = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            lower.appendCodePoint(Character.toLowerCase(codePoint));
+            i += Character.charCount(codePoint);
+        }
+        return lower.toString();
+    }
+}
@@ -0,0 +1,184 @@
+package com.slct.demo;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Background re-fetch of stale songs. Requests for the same song while it waits or while
+// it's being refreshed are deduplicated and counted, and the most requested song is
+// refreshed first. Refreshes are spaced out to stay within songs.refresh.rate per second,
+// and a song whose refresh failed or found nothing is left alone for a growing backoff.
+@Component
+public class SongRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongRefresher.class);
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+
+    public enum RefreshOutcome { REFRESHED, NOT_FOUND, ERROR }
+
+    // Re-fetches and saves one song, set by whoever owns the song lookups so refreshes share
+    // their in-flight fetches
+    @FunctionalInterface
+    public interface Refresh {
+        RefreshOutcome refresh(Song stale);
+    }
+
+    private final Map<SongKey, Candidate> pending = new ConcurrentHashMap<>();
+    private final Cache<SongKey, Backoff> backoffs;
+    private final int maxPending;
+    private final long intervalNanos;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile Refresh refresh;
+
+    private final LongCounter scheduled;
+    private final LongCounter refreshes;
+
+    public SongRefresher(
+            @Value("${songs.refresh.rate:1}") double rate,
+            @Value("${songs.refresh.max-pending:10000}") int maxPending,
+            @Value("${songs.refresh.backoff.initial:1m}") Duration initialBackoff,
+            @Value("${songs.refresh.backoff.max:1h}") Duration maxBackoff) {
+        this.maxPending = maxPending;
+        this.intervalNanos = (long) (1_000_000_000L / rate);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        // A key idle for the longest backoff starts over, and the map stays as small as the queue
+        this.backoffs = Caffeine.newBuilder()
+            .maximumSize(maxPending)
+            .expireAfterWrite(maxBackoff.multipliedBy(2))
+            .build();
+        this.worker = new Thread(this::run, "song-refresher");
+        this.worker.setDaemon(true);
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.scheduled = meter.counterBuilder("songs.refresh.scheduled")
+            .setDescription("Number of stale songs queued for a background refresh")
+            .build();
+        this.refreshes = meter.counterBuilder("songs.refresh.completed")
+            .setDescription("Number of background refreshes by outcome")
+            .build();
+        meter.upDownCounterBuilder("songs.refresh.pending")
+            .setDescription("Number of stale songs waiting for a background refresh")
+            .buildWithCallback(measurement -> measurement.record(pending.size()));
+    }
+
+    @PostConstruct
+    void start() {
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    public void setRefresh(Refresh refresh) {
+        this.refresh = refresh;
+    }
+
+    public void schedule(Song song) {
+        SongKey key = SongKey.of(song.getTitle(), song.getArtist());
+        Candidate candidate = pending.get(key);
+        if (candidate == null) {
+            Backoff backoff = backoffs.getIfPresent(key);
+            if (pending.size() >= maxPending || (backoff != null && System.nanoTime() < backoff.retryAt)) {
+                return;
+            }
+            candidate = pending.computeIfAbsent(key, k -> {
+                scheduled.add(1);
+                return new Candidate(song);
+            });
+        }
+        candidate.hits.increment();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(Duration.ofNanos(intervalNanos));
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Map.Entry<SongKey, Candidate> next = mostRequested();
+            if (next != null && refresh != null) {
+                // Stays in pending until it's done, so stale hits meanwhile don't queue it again
+                try {
+                    refresh(next.getKey(), next.getValue());
+                } finally {
+                    pending.remove(next.getKey(), next.getValue());
+                }
+            }
+        }
+    }
+
+    private Map.Entry<SongKey, Candidate> mostRequested() {
+        Map.Entry<SongKey, Candidate> best = null;
+        long bestHits = -1;
+        for (Map.Entry<SongKey, Candidate> entry : pending.entrySet()) {
+            long hits = entry.getValue().hits.sum();
+            if (hits > bestHits) {
+                best = entry;
+                bestHits = hits;
+            }
+        }
+        return best;
+    }
+
+    private void refresh(SongKey key, Candidate candidate) {
+        Song stale = candidate.song;
+        RefreshOutcome outcome;
+        try {
+            outcome = refresh.refresh(stale);
+        } catch (Exception e) {
+            logger.warn("Could not refresh song {} by {}", stale.getTitle(), stale.getArtist(), e);
+            outcome = RefreshOutcome.ERROR;
+        }
+
+        if (outcome == RefreshOutcome.REFRESHED) {
+            backoffs.invalidate(key);
+        } else {
+            // Keep serving what we have, but don't spend MusicBrainz calls on it for a while
+            Backoff previous = backoffs.getIfPresent(key);
+            long delay = previous == null ? initialBackoffNanos : Math.min(previous.delay * 2, maxBackoffNanos);
+            backoffs.put(key, new Backoff(delay, System.nanoTime() + delay));
+            logger.debug("Refresh of {} by {} ended {}, next attempt in {} s",
+                stale.getTitle(), stale.getArtist(), outcome, delay / 1_000_000_000);
+        }
+        refreshes.add(1, Attributes.of(OUTCOME, outcome.name().toLowerCase(Locale.ROOT)));
+    }
+
+    private static final class Candidate {
+        private final Song song;
+        private final LongAdder hits = new LongAdder();
+
+        private Candidate(Song song) {
+            this.song = song;
+        }
+    }
+
+    private record Backoff(long delay, long retryAt) {
+    }
+}
@@ -4,13 +4,23 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SongRepository extends JpaRepository<Song, Long> {
     
-    @Query("SELECT s FROM Song s WHERE LOWER(s.title) = LOWER(:title) AND LOWER(s.artist) = LOWER(:artist)")
-    Optional<Song> findByTitleAndArtistIgnoreCase(@Param("title") String title, @Param("artist") String artist);
+    // Constructor projection: the result is a plain object, so Hibernate keeps no
+    // persistence context entry or dirty-checking snapshot for it
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.slct.demo.Song(s.id, s.title, s.artist, s.album, s.year, s.durationMs, s.genre, s.cachedAt) FROM Song s WHERE s.lookupKey = :lookupKey")
+    Optional<Song> findByLookupKey(@Param("lookupKey") String lookupKey);
+    
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.slct.demo.Song(s.id, s.title, s.artist, s.album, s.year, s.durationMs, s.genre, s.cachedAt) FROM Song s WHERE s.lookupKey IN :lookupKeys")
+    List<Song> findByLookupKeyIn(@Param("lookupKeys") Collection<String> lookupKeys);
     
 } 
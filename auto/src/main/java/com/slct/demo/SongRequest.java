@@ -0,0 +1,4 @@
+package com.slct.demo;
+
+public record SongRequest(String title, String artist) {
+}
@@ -0,0 +1,650 @@
+package com.slct.demo;
+
+import java.sql.PreparedStatement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// In-memory search over song titles and artists. Every distinct word goes into a prefix
+// trie, which answers exact and autocomplete matches ("smells like te") and, walked with a
+// bounded Levenshtein row per node, the words within a few edits of a misspelled one
+// ("spirt"). Songs are then found through per-word posting lists, so the fuzzy part only
+// looks at the vocabulary, which grows far slower than the catalog. The index is loaded from
+// the songs table in the background and grows as songs are saved; songs are never removed.
+@Component
+public class SongSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongSearchIndex.class);
+
+    private static final String SONGS_SQL = "SELECT title, artist FROM songs";
+    private static final int FETCH_SIZE = 10_000;
+    private static final int LOAD_CHUNK = 1_000;
+
+    // Bound the work per keystroke: a one-letter prefix or a short misspelled word matches
+    // much of a large catalog, so only this many words and songs are looked at
+    private static final int MATCHED_WORDS = 2_000;
+    private static final int CANDIDATES = 1_000;
+
+    public record Result(String title, String artist) {
+    }
+
+    private record Entry(String title, String artist, int[] words, String artistText) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final boolean loadOnStartup;
+    private Thread loader;
+
+    // Entries and words are only appended, so ids are positions and every list of ids is sorted
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<SongKey, Integer> ids = new HashMap<>();
+    private final TrieNode trie = new TrieNode();
+    private final List<String> vocabulary = new ArrayList<>();
+    private final List<IntList> postings = new ArrayList<>();
+
+    private final DoubleHistogram searchDuration;
+
+    public SongSearchIndex(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${songs.search.load-on-startup:true}") boolean loadOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.loadOnStartup = loadOnStartup;
+
+        this.searchDuration = GlobalOpenTelemetry.getMeter("com.slct.demo").histogramBuilder("songs.search.duration")
+            .setDescription("Duration of a song search against the in-memory index")
+            .setUnit("s")
+            .setExplicitBucketBoundariesAdvice(LatencyBuckets.IN_PROCESS)
+            .build();
+    }
+
+    // The gauge and the loader both call back into the index, so they only start once it's built
+    @PostConstruct
+    void start() {
+        GlobalOpenTelemetry.getMeter("com.slct.demo").upDownCounterBuilder("songs.search.index.size")
+            .setDescription("Number of songs in the search index")
+            .buildWithCallback(measurement -> measurement.record(size()));
+        if (loadOnStartup) {
+            loader = Thread.ofVirtual().name("song-search-loader").start(this::load);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (loader != null) {
+            loader.interrupt();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(SongKey key) {
+        lock.readLock().lock();
+        try {
+            return ids.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(String title, String artist) {
+        lock.writeLock().lock();
+        try {
+            index(title, artist);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Collection<Song> songs) {
+        lock.writeLock().lock();
+        try {
+            for (Song song : songs) {
+                index(song.getTitle(), song.getArtist());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Every query word has to match a word of the song, the last one as a prefix since it
+    // may still be typed. Exact and prefix matches come first, shortest text first; when
+    // there are fewer than limit of them the rest is filled with fuzzy matches, fewest edits
+    // first. An artist, when given, has to match within the same edit bound.
+    public List<Result> search(String query, String artist, int limit) {
+        long start = System.nanoTime();
+        String[] queryWords = words(normalize(query));
+        String artistText = artist != null ? normalize(artist) : null;
+        if (queryWords.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            IntIntMap[] matches = new IntIntMap[queryWords.length];
+            for (int i = 0; i < queryWords.length; i++) {
+                matches[i] = exactWords(queryWords[i], i == queryWords.length - 1);
+            }
+            List<Result> results = new ArrayList<>(limit);
+            IntIntMap seen = new IntIntMap();
+            collect(matches, artistText, limit, seen, results);
+
+            if (results.size() < limit) {
+                for (int i = 0; i < queryWords.length; i++) {
+                    fuzzyWords(queryWords[i], i == queryWords.length - 1, matches[i]);
+                }
+                collect(matches, artistText, limit, seen, results);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            searchDuration.record((System.nanoTime() - start) / 1_000_000_000d);
+        }
+    }
+
+    private void load() {
+        List<String[]> chunk = new ArrayList<>(LOAD_CHUNK);
+        long start = System.nanoTime();
+        try {
+            readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SONGS_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                chunk.add(new String[] { rs.getString("title"), rs.getString("artist") });
+                if (chunk.size() == LOAD_CHUNK) {
+                    addChunk(chunk);
+                }
+            }));
+            addChunk(chunk);
+            logger.info("Loaded {} songs into the search index in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.warn("Could not load the song search index, it only holds songs saved since startup", e);
+        }
+    }
+
+    // Searches keep running while the index loads, the write lock is only held per chunk
+    private void addChunk(List<String[]> chunk) {
+        lock.writeLock().lock();
+        try {
+            for (String[] song : chunk) {
+                index(song[0], song[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        chunk.clear();
+    }
+
+    private void index(String title, String artist) {
+        SongKey key = SongKey.of(title, artist);
+        if (ids.containsKey(key)) {
+            return;
+        }
+        int id = entries.size();
+        String[] words = words(normalize(title + " " + artist));
+        int[] wordIds = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            wordIds[i] = wordId(words[i]);
+            postings.get(wordIds[i]).addUnique(id);
+        }
+        entries.add(new Entry(title, artist, wordIds, normalize(artist)));
+        ids.put(key, id);
+    }
+
+    private int wordId(String word) {
+        TrieNode node = trie;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.addChild(word.charAt(i));
+        }
+        if (node.word < 0) {
+            node.word = vocabulary.size();
+            vocabulary.add(word);
+            postings.add(new IntList());
+        }
+        return node.word;
+    }
+
+    // The word itself, or for the last query word every word starting with it, at distance 0
+    private IntIntMap exactWords(String word, boolean prefix) {
+        IntIntMap matched = new IntIntMap();
+        TrieNode node = trie;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(word.charAt(i));
+        }
+        if (node != null) {
+            if (prefix) {
+                node.collectWords(matched, 0);
+            } else if (node.word >= 0) {
+                matched.put(node.word, 0);
+            }
+        }
+        return matched;
+    }
+
+    // Adds the words within maxEdits of the query word. Each trie node extends the parent's
+    // edit distance row by one character, and a branch is left as soon as the whole row is
+    // over the bound. For a prefix the distance of a word is that of its closest prefix.
+    private void fuzzyWords(String word, boolean prefix, IntIntMap matched) {
+        int bound = maxEdits(word.length());
+        if (bound == 0) {
+            return;
+        }
+        int[] row = new int[word.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        for (int i = 0; i < trie.children.length; i++) {
+            walk(trie.children[i], trie.labels[i], row, word, bound, prefix, bound + 1, matched);
+        }
+    }
+
+    private void walk(TrieNode node, char label, int[] previous, String word, int bound, boolean prefix,
+            int bestPrefix, IntIntMap matched) {
+        if (matched.size() >= MATCHED_WORDS) {
+            return;
+        }
+        int[] row = new int[previous.length];
+        row[0] = previous[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int substitution = previous[i - 1] + (word.charAt(i - 1) == label ? 0 : 1);
+            row[i] = Math.min(substitution, Math.min(previous[i], row[i - 1]) + 1);
+            rowMin = Math.min(rowMin, row[i]);
+        }
+        int distance = row[row.length - 1];
+        if (prefix) {
+            bestPrefix = Math.min(bestPrefix, distance);
+            if (bestPrefix <= bound && rowMin >= bestPrefix) {
+                // Nothing deeper can get closer, everything below matches at this distance
+                node.collectWords(matched, bestPrefix);
+                return;
+            }
+            distance = bestPrefix;
+        }
+        if (distance <= bound && node.word >= 0) {
+            matched.putIfCloser(node.word, distance);
+        }
+        if (rowMin <= bound || (prefix && bestPrefix <= bound)) {
+            for (int i = 0; i < node.children.length; i++) {
+                walk(node.children[i], node.labels[i], row, word, bound, prefix, bestPrefix, matched);
+            }
+        }
+    }
+
+    // Songs come from the postings of the most selective query word and are checked against
+    // the others through their word ids, so no song text is compared
+    private void collect(IntIntMap[] matches, String artistText, int limit, IntIntMap seen, List<Result> results) {
+        int driver = 0;
+        long driverSize = Long.MAX_VALUE;
+        for (int i = 0; i < matches.length; i++) {
+            long[] size = { 0 };
+            matches[i].forEach((word, distance) -> size[0] += postings.get(word).size());
+            if (size[0] < driverSize) {
+                driver = i;
+                driverSize = size[0];
+            }
+        }
+        if (driverSize == 0) {
+            return;
+        }
+
+        // The smallest word is taken whole when it fits the cap, otherwise exact words narrow it
+        IntIntMap candidates = driverSize > CANDIDATES ? exactCandidates(matches) : null;
+        if (candidates == null) {
+            candidates = driverCandidates(matches[driver]);
+        }
+
+        List<long[]> scored = new ArrayList<>();
+        candidates.forEach((id, unused) -> {
+            if (seen.contains(id)) {
+                return;
+            }
+            Entry entry = entries.get(id);
+            int distance = distance(entry, matches);
+            if (distance >= 0 && artistMatches(entry, artistText)) {
+                scored.add(new long[] { distance, entry.title().length() + entry.artist().length(), id });
+            }
+        });
+        scored.sort(Arrays::compare);
+        for (int i = 0; i < scored.size() && results.size() < limit; i++) {
+            int id = (int) scored.get(i)[2];
+            Entry entry = entries.get(id);
+            results.add(new Result(entry.title(), entry.artist()));
+            seen.put(id, 0);
+        }
+    }
+
+    // When some query words matched exactly one word, their posting lists are intersected in
+    // full, rarest first, so songs sharing only common words aren't cut off by the cap
+    private IntIntMap exactCandidates(IntIntMap[] matches) {
+        List<IntList> exact = new ArrayList<>();
+        for (IntIntMap matched : matches) {
+            if (matched.size() == 1) {
+                matched.forEach((word, distance) -> exact.add(postings.get(word)));
+            }
+        }
+        if (exact.isEmpty()) {
+            return null;
+        }
+        exact.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        IntList rarest = exact.get(0);
+        IntIntMap candidates = new IntIntMap();
+        for (int i = 0; i < rarest.size() && candidates.size() < CANDIDATES; i++) {
+            int id = rarest.get(i);
+            boolean inAll = true;
+            for (int j = 1; j < exact.size() && inAll; j++) {
+                inAll = exact.get(j).contains(id);
+            }
+            if (inAll) {
+                candidates.put(id, 0);
+            }
+        }
+        return candidates;
+    }
+
+    private IntIntMap driverCandidates(IntIntMap driver) {
+        // Closest words first, so the CANDIDATES cap cuts off the worst matches
+        long[] driverWords = new long[driver.size()];
+        int[] n = { 0 };
+        driver.forEach((word, distance) -> driverWords[n[0]++] = (long) distance << 32 | word);
+        Arrays.sort(driverWords);
+        IntIntMap candidates = new IntIntMap();
+        for (int w = 0; w < driverWords.length && candidates.size() < CANDIDATES; w++) {
+            IntList docs = postings.get((int) driverWords[w]);
+            for (int i = 0; i < docs.size() && candidates.size() < CANDIDATES; i++) {
+                candidates.put(docs.get(i), 0);
+            }
+        }
+        return candidates;
+    }
+
+    // Sum over the query words of the closest matching song word, or -1 if one has none
+    private static int distance(Entry entry, IntIntMap[] matches) {
+        int total = 0;
+        for (IntIntMap matched : matches) {
+            int best = -1;
+            for (int word : entry.words()) {
+                int distance = matched.get(word);
+                if (distance >= 0 && (best < 0 || distance < best)) {
+                    best = distance;
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static boolean artistMatches(Entry entry, String artistText) {
+        if (artistText == null || artistText.isEmpty()) {
+            return true;
+        }
+        int bound = maxEdits(artistText.length());
+        return editDistance(artistText, entry.artistText(), bound, false) <= bound;
+    }
+
+    // Short words have to match exactly, longer ones may be off by one or two edits
+    static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    // Levenshtein distance, or max + 1 as soon as it is certain to exceed max. With prefix
+    // set it is the distance to the closest prefix of target.
+    static int editDistance(String query, String target, int max, boolean prefix) {
+        if (!prefix && Math.abs(query.length() - target.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[target.length() + 1];
+        int[] current = new int[target.length() + 1];
+        for (int j = 0; j <= target.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char q = query.charAt(i - 1);
+            for (int j = 1; j <= target.length(); j++) {
+                int substitution = previous[j - 1] + (q == target.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int distance = previous[target.length()];
+        if (prefix) {
+            for (int j = 0; j < target.length(); j++) {
+                distance = Math.min(distance, previous[j]);
+            }
+        }
+        return Math.min(distance, max + 1);
+    }
+
+    // Lowercase letters and digits with accents stripped, everything else collapsed into
+    // single spaces; apostrophes are dropped so "don't" and "dont" are the same word
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder text = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '\'' || c == '\u2019') {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                text.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                text.append(' ');
+                space = true;
+            }
+        }
+        if (space && !text.isEmpty()) {
+            text.setLength(text.length() - 1);
+        }
+        return text.toString();
+    }
+
+    private static String[] words(String text) {
+        return text.isEmpty() ? new String[0] : text.split(" ");
+    }
+
+    private static final class TrieNode {
+
+        private static final char[] NO_LABELS = {};
+        private static final TrieNode[] NO_CHILDREN = {};
+
+        // Sorted, so a child is found by binary search without a map per node
+        private char[] labels = NO_LABELS;
+        private TrieNode[] children = NO_CHILDREN;
+        private int word = -1;
+
+        TrieNode child(char label) {
+            int i = Arrays.binarySearch(labels, label);
+            return i >= 0 ? children[i] : null;
+        }
+
+        TrieNode addChild(char label) {
+            int i = Arrays.binarySearch(labels, label);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            char[] newLabels = new char[labels.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(labels, i, newLabels, i + 1, labels.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            newLabels[i] = label;
+            newChildren[i] = new TrieNode();
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[i];
+        }
+
+        // This word and the words under it in trie order, so a word comes before its extensions
+        void collectWords(IntIntMap matched, int distance) {
+            List<TrieNode> stack = new ArrayList<>();
+            stack.add(this);
+            while (!stack.isEmpty() && matched.size() < MATCHED_WORDS) {
+                TrieNode node = stack.removeLast();
+                if (node.word >= 0) {
+                    matched.putIfCloser(node.word, distance);
+                }
+                for (int i = node.children.length - 1; i >= 0; i--) {
+                    stack.add(node.children[i]);
+                }
+            }
+        }
+    }
+
+    // Growable int array for posting lists, which would otherwise be lists of boxed Integers
+    private static final class IntList {
+
+        private int[] values = new int[2];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        // Ids arrive in increasing order, so a repeat can only be the last one
+        void addUnique(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    // Open-addressing map of non-negative ints, so matching doesn't box every word and song id
+    private static final class IntIntMap {
+
+        interface Visitor {
+            void visit(int key, int value);
+        }
+
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int key) {
+            return used[slot(key)];
+        }
+
+        // -1 when absent
+        int get(int key) {
+            int slot = slot(key);
+            return used[slot] ? values[slot] : -1;
+        }
+
+        void put(int key, int value) {
+            int slot = slot(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    values[slot] = value;
+                    grow();
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        void putIfCloser(int key, int value) {
+            int current = get(key);
+            if (current < 0 || value < current) {
+                put(key, value);
+            }
+        }
+
+        void forEach(Visitor visitor) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    visitor.visit(keys[slot], values[slot]);
+                }
+            }
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            // Fibonacci hashing takes the high bits, which ids in a run spread evenly over
+            int slot = (key * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slot(oldKeys[i]);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
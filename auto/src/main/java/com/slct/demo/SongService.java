@@ -3,7 +3,16 @@ package com.slct.demo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import dev.jcosta.semconv.QuerySongSpan;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.trace.Span;
 
 @Service
@@ -11,38 +20,151 @@ public class SongService {
     
     @Autowired
     private SongRepository songRepository;
+
+    @Autowired
+    private SongCache songCache;
+
+    @Autowired
+    private SongWriter songWriter;
+
+    @Autowired
+    private SongCatalog songCatalog;
+
+    @Autowired
+    private SongSearchIndex songSearchIndex;
+
+    private static final AttributeKey<String> OPERATION = AttributeKey.stringKey("db.operation.name");
+    private static final Attributes FIND_ONE = Attributes.of(OPERATION, "find_by_lookup_key");
+    private static final Attributes FIND_MANY = Attributes.of(OPERATION, "find_by_lookup_key_in");
+    private static final AttributeKey<String> SAVE_MODE = AttributeKey.stringKey("mode");
+    private static final Attributes SAVE_ONE = Attributes.of(SAVE_MODE, "single");
+
+    private final DoubleHistogram lookupDuration;
+    private final DoubleHistogram saveDuration;
+
+    public SongService() {
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.lookupDuration = meter.histogramBuilder("songs.db.lookup.duration")
+            .setDescription("Duration of song lookups that reach PostgreSQL")
+            .setUnit("s")
+            .setExplicitBucketBoundariesAdvice(LatencyBuckets.DATABASE)
+            .build();
+        this.saveDuration = meter.histogramBuilder("songs.save.duration")
+            .setDescription("Duration of handing new songs to the cache and the write-behind queue")
+            .setUnit("s")
+            .setExplicitBucketBoundariesAdvice(LatencyBuckets.IN_PROCESS)
+            .build();
+    }
     
     public Song getSongFromDatabase(String title, String artist) {
+        SongKey key = SongKey.of(title, artist);
+        Song cached = songCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Song snapshotted = songCatalog.get(key);
+        if (snapshotted != null) {
+            songCache.put(key, snapshotted);
+            return snapshotted;
+        }
+
+        long start = System.nanoTime();
         try {
-            var song = songRepository.findByTitleAndArtistIgnoreCase(title, artist);
+            var song = songRepository.findByLookupKey(key.lookupKey());
             
             if (song.isPresent()) {
+                songCache.put(key, song.get());
                 return song.get();
             } else {
                 return null;
             }
         } catch (Exception e) {
             throw new RuntimeException("Database error: " + e.getMessage(), e);
+        } finally {
+            lookupDuration.record(seconds(start), FIND_ONE);
+        }
+    }
+    
+    // Resolves every key that is cached, in the catalog snapshot or stored with at most one set-based query
+    public Map<SongKey, Song> getSongsFromDatabase(Collection<SongKey> keys) {
+        Map<SongKey, Song> songs = new HashMap<>();
+        Map<String, SongKey> uncached = new HashMap<>();
+        for (SongKey key : keys) {
+            Song cached = songCache.get(key);
+            if (cached == null) {
+                cached = songCatalog.get(key);
+                if (cached != null) {
+                    songCache.put(key, cached);
+                }
+            }
+            if (cached != null) {
+                songs.put(key, cached);
+            } else {
+                uncached.put(key.lookupKey(), key);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return songs;
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (Song song : songRepository.findByLookupKeyIn(uncached.keySet())) {
+                SongKey key = uncached.get(song.getLookupKey());
+                songCache.put(key, song);
+                songs.put(key, song);
+            }
+            return songs;
+        } catch (Exception e) {
+            throw new RuntimeException("Database error: " + e.getMessage(), e);
+        } finally {
+            lookupDuration.record(seconds(start), FIND_MANY);
         }
     }
     
     public Song saveSong(String title, String artist, String album, Integer year, Integer durationMs, String genre) {
+        long start = System.nanoTime();
         try {
             Song song = new Song(title, artist, album, year, durationMs, genre);
 
-            Span span = Span.current();
-            span.setAllAttributes(Attributes.builder()
-                .put("media.song.name", title)
-                .put("media.artist.name", artist)
-                .put("media.album.name", album != null ? album : "Unknown")
-                .put("media.song.year", year != null ? year : 0)
-                .put("media.song.duration_ms", durationMs != null ? durationMs : 0)
-                .put("media.song.genre", genre != null ? genre : "Unknown")
-                .build());
-
-            return songRepository.save(song);
+            recordSongAttributes(Span.current(), title, artist, album, year, durationMs, genre);
+
+            // The insert happens in the background, the cache serves the song until then
+            SongKey key = SongKey.of(title, artist);
+            songCache.put(key, song);
+            songCatalog.supersede(key);
+            songSearchIndex.add(title, artist);
+            songWriter.enqueue(song);
+            return song;
         } catch (Exception e) {
             throw new RuntimeException("Error saving song: " + e.getMessage(), e);
+        } finally {
+            saveDuration.record(seconds(start), SAVE_ONE);
         }
     }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000d;
+    }
+
+    // Typed semconv keys straight onto the span, nothing is built when it isn't recording.
+    // The service has no user context, so user.id and user.subscription.type stay unset.
+    static void recordSongAttributes(Span span, String title, String artist, String album, Integer year, Integer durationMs, String genre) {
+        if (!span.isRecording()) {
+            return;
+        }
+        QuerySongSpan.record(span, artist, title, null, null,
+            album != null ? album : "Unknown",
+            (long) (year != null ? year : 0),
+            (long) (durationMs != null ? durationMs : 0),
+            genre != null ? genre : "Unknown");
+    }
+
+    public boolean isKnownMissing(String title, String artist) {
+        return songCache.isNotFound(SongKey.of(title, artist));
+    }
+
+    public void markNotFound(String title, String artist) {
+        songCache.putNotFound(SongKey.of(title, artist));
+    }
 }
@@ -0,0 +1,224 @@
+package com.slct.demo;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Write-behind persistence for newly discovered songs. Songs are queued by the request
+// thread and inserted by a background flusher in batched upserts, triggered by batch
+// size or flush interval, whichever comes first. A batch that fails is retried, then
+// written row by row so one bad song doesn't lose the rest.
+@Component
+public class SongWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongWriter.class);
+
+    // lookup_key covers unique_title_artist too: equal (title, artist) means equal lookup_key
+    private static final String UPSERT_SQL = """
+        INSERT INTO songs (title, artist, album, year, duration_ms, genre, cached_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (lookup_key) DO UPDATE SET
+            album = EXCLUDED.album,
+            year = EXCLUDED.year,
+            duration_ms = EXCLUDED.duration_ms,
+            genre = EXCLUDED.genre,
+            cached_at = EXCLUDED.cached_at
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Song> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int retries;
+    private final Duration retryBackoff;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongHistogram batchSizes;
+    private final DoubleHistogram flushDuration;
+    private final LongCounter overflows;
+    private final LongCounter failures;
+
+    public SongWriter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${songs.writer.queue-capacity:10000}") int queueCapacity,
+            @Value("${songs.writer.batch-size:100}") int batchSize,
+            @Value("${songs.writer.flush-interval:200ms}") Duration flushInterval,
+            @Value("${songs.writer.retries:2}") int retries,
+            @Value("${songs.writer.retry-backoff:100ms}") Duration retryBackoff) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.retries = retries;
+        this.retryBackoff = retryBackoff;
+        this.flusher = new Thread(this::run, "song-writer");
+        this.flusher.setDaemon(true);
+
+        Meter meter = GlobalOpenTelemetry.getMeter("com.slct.demo");
+        this.batchSizes = meter.histogramBuilder("songs.writer.batch.size")
+            .setDescription("Number of songs written per batched upsert")
+            .setUnit("{song}")
+            .ofLongs()
+            .build();
+        this.flushDuration = meter.histogramBuilder("songs.writer.flush.duration")
+            .setDescription("Duration of a batched song upsert")
+            .setUnit("s")
+            .build();
+        this.overflows = meter.counterBuilder("songs.writer.overflows")
+            .setDescription("Number of songs written synchronously because the write-behind queue was full")
+            .build();
+        this.failures = meter.counterBuilder("songs.writer.failures")
+            .setDescription("Number of songs that could not be written")
+            .build();
+        meter.upDownCounterBuilder("songs.writer.queue.size")
+            .setDescription("Number of songs waiting to be written")
+            .buildWithCallback(measurement -> measurement.record(queue.size()));
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.start();
+    }
+
+    // Returns immediately unless the queue is full, in which case the caller writes the song
+    // itself so queue memory stays bounded
+    public void enqueue(Song song) {
+        if (!running || !queue.offer(song)) {
+            overflows.add(1);
+            flush(List.of(song));
+        }
+    }
+
+    private void run() {
+        List<Song> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Song first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the flush interval has passed
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Song next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                break;
+            }
+
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Song> songs) {
+        if (songs.isEmpty()) {
+            return;
+        }
+
+        // A song queued twice in the same batch is written once, the latest version wins
+        Map<String, Song> unique = new LinkedHashMap<>();
+        for (Song song : songs) {
+            unique.put(song.getLookupKey(), song);
+        }
+        List<Object[]> rows = new ArrayList<>(unique.size());
+        for (Song song : unique.values()) {
+            rows.add(new Object[] {
+                song.getTitle(), song.getArtist(), song.getAlbum(), song.getYear(),
+                song.getDurationMs(), song.getGenre(), Timestamp.from(song.getCachedAt())
+            });
+        }
+
+        long start = System.nanoTime();
+        try {
+            writeBatch(rows);
+            batchSizes.record(rows.size());
+        } catch (InterruptedException e) {
+            // Shutting down: no more waiting between retries, but every song still gets a try
+            Thread.currentThread().interrupt();
+            writeEach(rows);
+        } catch (Exception e) {
+            logger.warn("Could not write a batch of {} songs, writing them one at a time", rows.size(), e);
+            writeEach(rows);
+        } finally {
+            flushDuration.record((System.nanoTime() - start) / 1_000_000_000.0);
+        }
+    }
+
+    // A lost connection or a deadlock may pass, so the batch is retried with a doubling
+    // backoff. A constraint violation won't, and goes straight to row by row.
+    private void writeBatch(List<Object[]> rows) throws InterruptedException {
+        long backoff = retryBackoff.toNanos();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                logger.debug("Batch of {} songs failed, retrying in {} ms: {}", rows.size(), backoff / 1_000_000, e.getMessage());
+                TimeUnit.NANOSECONDS.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private void writeEach(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            try {
+                jdbcTemplate.update(UPSERT_SQL, row);
+            } catch (Exception e) {
+                failures.add(1);
+                logger.error("Could not write song {} by {}", row[0], row[1], e);
+            }
+        }
+    }
+
+    // Drain whatever is still queued before the connection pool goes away
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // No interrupt: the flusher finishes its current batch and exits on the next poll timeout
+        running = false;
+        flusher.join(flushInterval.toMillis() * 10);
+
+        List<Song> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            flush(remaining.subList(i, Math.min(i + batchSize, remaining.size())));
+        }
+    }
+}
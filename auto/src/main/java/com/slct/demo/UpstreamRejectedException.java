@@ -0,0 +1,20 @@
+package com.slct.demo;
+
+import java.io.IOException;
+
+// Thrown when MusicBrainzGuard turns a call away before it reaches MusicBrainz
+public class UpstreamRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+
+    public UpstreamRejectedException(String reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,26 @@
+package com.slct.demo;
+
+import java.io.IOException;
+
+// Thrown when MusicBrainz answers with an HTTP error status
+public class UpstreamStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public UpstreamStatusException(int statusCode) {
+        super("MusicBrainz returned HTTP " + statusCode);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    // Server errors and 429 mean MusicBrainz is struggling or pushing back. Any other 4xx is
+    // about the request, so MusicBrainz itself answered fine.
+    public boolean isUpstreamFailure() {
+        return statusCode >= 500 || statusCode == 429;
+    }
+}
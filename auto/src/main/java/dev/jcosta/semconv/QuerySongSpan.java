@@ -0,0 +1,51 @@
+// DO NOT EDIT, this is an auto-generated file
+
+package dev.jcosta.semconv;
+
+import io.opentelemetry.api.trace.Span;
+
+/**
+ * <p>This span represents the song being queried.</p>
+ * <p>Attributes of the <c>span.query_song</c> span: required first, then recommended, then opt-in.</p>
+ */
+public final class QuerySongSpan {
+
+    private QuerySongSpan() {
+    }
+
+    /**
+     * <p>Sets every attribute of <c>span.query_song</c> on the span through the typed keys in {@link Attributes}.
+     * Does nothing when the span is not recording, and null values are not set.</p>
+     *
+     * @param mediaArtistName <c>media.artist.name</c> (required)
+     * @param mediaSongName <c>media.song.name</c> (required)
+     * @param userId <c>user.id</c> (required)
+     * @param userSubscriptionType <c>user.subscription.type</c> (required)
+     * @param mediaAlbumName <c>media.album.name</c> (recommended)
+     * @param mediaSongYear <c>media.song.year</c> (recommended)
+     * @param mediaSongDurationMs <c>media.song.duration_ms</c> (opt_in)
+     * @param mediaSongGenre <c>media.song.genre</c> (opt_in)
+     */
+    public static void record(
+            Span span,
+            String mediaArtistName,
+            String mediaSongName,
+            String userId,
+            String userSubscriptionType,
+            String mediaAlbumName,
+            Long mediaSongYear,
+            Long mediaSongDurationMs,
+            String mediaSongGenre) {
+        if (!span.isRecording()) {
+            return;
+        }
+        span.setAttribute(Attributes.MEDIA_ARTIST_NAME_KEY, mediaArtistName);
+        span.setAttribute(Attributes.MEDIA_SONG_NAME_KEY, mediaSongName);
+        span.setAttribute(Attributes.USER_ID_KEY, userId);
+        span.setAttribute(Attributes.USER_SUBSCRIPTION_TYPE_KEY, userSubscriptionType);
+        span.setAttribute(Attributes.MEDIA_ALBUM_NAME_KEY, mediaAlbumName);
+        span.setAttribute(Attributes.MEDIA_SONG_YEAR_KEY, mediaSongYear);
+        span.setAttribute(Attributes.MEDIA_SONG_DURATION_MS_KEY, mediaSongDurationMs);
+        span.setAttribute(Attributes.MEDIA_SONG_GENRE_KEY, mediaSongGenre);
+    }
+}
@@ -0,0 +1,92 @@
+package com.slct.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.slct.demo.MusicBrainzResponseParser.RecordingMatch;
+
+// Recording search responses under src/test/resources/musicbrainz, trimmed to the fields the parser reads
+class MusicBrainzResponseParserTest {
+
+    private final MusicBrainzResponseParser parser = new MusicBrainzResponseParser(new JsonFactory());
+
+    @Test
+    void prefersStudioRecordingsOverEarlierLiveOnes() throws IOException {
+        assertThat(parse("studio-over-live.json")).isEqualTo(new RecordingMatch("Nevermind", 1991, 301000, "Unknown"));
+    }
+
+    @Test
+    void prefersTheEarliestStudioRecordingAndRelease() throws IOException {
+        assertThat(parse("earliest-year.json")).isEqualTo(new RecordingMatch("Bleach", 1989, 180000, "Unknown"));
+    }
+
+    @Test
+    void treatsFullDatesAsLiveAndSkipsUnparseableDates() throws IOException {
+        assertThat(parse("date-formats.json"))
+            .isEqualTo(new RecordingMatch("Nevermind (Remastered)", 2011, 301000, "Unknown"));
+    }
+
+    @Test
+    void fallsBackToTheFirstRecordingAndReleaseWithoutDates() throws IOException {
+        assertThat(parse("undated.json")).isEqualTo(new RecordingMatch("MTV Unplugged", null, null, "Unknown"));
+    }
+
+    @Test
+    void fallsBackToTheFirstTaggedRecordingForGenre() throws IOException {
+        assertThat(parse("genre-fallback.json")).isEqualTo(new RecordingMatch("Nevermind", 1991, 301000, "grunge"));
+    }
+
+    // JSON nulls read as the text "null", like JsonNode.asText() and asInt() did
+    @Test
+    void readsNullValuesAsText() throws IOException {
+        assertThat(parse("null-values.json")).isEqualTo(new RecordingMatch("null", null, 0, "null"));
+    }
+
+    // Non-object recordings and releases still count, objects and arrays read as empty text
+    @Test
+    void skipsOverNonObjectValues() throws IOException {
+        assertThat(parse("non-object-values.json")).isEqualTo(new RecordingMatch("", 1991, 301000, "grunge"));
+    }
+
+    @Test
+    void selectsANonObjectRecordingWhenItIsTheOnlyOne() throws IOException {
+        assertThat(parseJson("{\"recordings\":[null]}")).isEqualTo(new RecordingMatch("Unknown", null, null, "Unknown"));
+    }
+
+    @Test
+    void returnsNullWithoutRecordings() throws IOException {
+        assertThat(parseJson("{\"count\":0}")).isNull();
+        assertThat(parseJson("{\"recordings\":[]}")).isNull();
+        assertThat(parseJson("{\"recordings\":null}")).isNull();
+        assertThat(parseJson("{\"recordings\":{\"title\":\"Smells Like Teen Spirit\"}}")).isNull();
+        assertThat(parseJson("[{\"recordings\":[{}]}]")).isNull();
+    }
+
+    @Test
+    void rejectsAFirstTagThatIsNotAnObject() {
+        assertThatIllegalStateException().isThrownBy(() -> parseJson("{\"recordings\":[{\"tags\":[\"grunge\"]}]}"));
+    }
+
+    @Test
+    void rejectsAMissingBody() {
+        assertThatIllegalArgumentException().isThrownBy(() -> parser.parse(null));
+    }
+
+    private RecordingMatch parseJson(String json) throws IOException {
+        return parser.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private RecordingMatch parse(String fixture) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/musicbrainz/" + fixture)) {
+            return parser.parse(in.readAllBytes());
+        }
+    }
+}
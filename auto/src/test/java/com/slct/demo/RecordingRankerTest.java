@@ -0,0 +1,163 @@
+package com.slct.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.slct.demo.MusicBrainzResponseParser.RecordingMatch;
+import com.slct.demo.RecordingRanker.Ranking;
+import com.slct.demo.RecordingRanker.RecordingScore;
+
+// Same scenarios as the fixtures in MusicBrainzResponseParserTest, fed to the ranker directly
+class RecordingRankerTest {
+
+    private final RecordingRanker ranker = RecordingRanker.defaults();
+
+    @Test
+    void extractsYearFromSupportedDateFormats() {
+        assertThat(RecordingRanker.extractYear("1991")).isEqualTo(1991);
+        assertThat(RecordingRanker.extractYear("1991-09")).isEqualTo(1991);
+        assertThat(RecordingRanker.extractYear("1991-09-24")).isEqualTo(1991);
+        assertThat(RecordingRanker.extractYear("1991-")).isEqualTo(1991);
+    }
+
+    @Test
+    void extractYearMatchesIntegerParseIntOnTheFirstFourCharacters() {
+        assertThat(RecordingRanker.extractYear("+991")).isEqualTo(991);
+        assertThat(RecordingRanker.extractYear("0000")).isZero();
+        assertThat(RecordingRanker.extractYear("\u0661\u0669\u0669\u0661")).isEqualTo(1991);
+
+        assertThat(RecordingRanker.extractYear(null)).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("null")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("91-09-24")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("19910")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("+1991")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("-1991")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("19x1")).isEqualTo(RecordingRanker.NO_YEAR);
+        assertThat(RecordingRanker.extractYear("Sept 1991")).isEqualTo(RecordingRanker.NO_YEAR);
+    }
+
+    @Test
+    void detectsLiveReleasesByTitle() {
+        assertThat(ranker.isLive("Live at Reading", "2009")).isTrue();
+        assertThat(ranker.isLive("MTV UNPLUGGED IN CONCERT", "1994")).isTrue();
+        assertThat(ranker.isLive("From the Muddy Banks of the Wishkah (Backstage)", "1996")).isTrue();
+        assertThat(ranker.isLive("World Tour", "1992")).isTrue();
+
+        assertThat(ranker.isLive("Nevermind", "1991")).isFalse();
+        // Substring match, as before
+        assertThat(ranker.isLive("Olive", "1991")).isTrue();
+        assertThat(ranker.isLive(null, "1991")).isFalse();
+    }
+
+    @Test
+    void detectsLiveReleasesByFullDate() {
+        assertThat(ranker.isLive("Nevermind", "1991-09-24")).isTrue();
+        assertThat(ranker.isLive("Nevermind", "released 1991-09-24")).isTrue();
+        assertThat(ranker.isLive("Nevermind", "1991-09-24 ")).isTrue();
+
+        assertThat(ranker.isLive("Nevermind", "1991-09")).isFalse();
+        assertThat(ranker.isLive("Nevermind", "1991-9-24")).isFalse();
+        // '.' in the original regex doesn't match line terminators
+        assertThat(ranker.isLive("Nevermind", "1991-09-24\n")).isFalse();
+        assertThat(ranker.isLive("Nevermind", "1991-09-24 ")).isFalse();
+    }
+
+    @Test
+    void prefersStudioRecordingsOverEarlierLiveOnes() {
+        Ranking ranking = ranker.newRanking();
+        ranking.add(recording(ranking, 298000, "Live at the Paramount", "1990"));
+        ranking.add(recording(ranking, 301000, "Nevermind", "1991-09"));
+
+        assertThat(ranking.toMatch()).isEqualTo(new RecordingMatch("Nevermind", 1991, 301000, "Unknown"));
+    }
+
+    @Test
+    void prefersTheEarliestStudioRecordingAndRelease() {
+        Ranking ranking = ranker.newRanking();
+        ranking.add(recording(ranking, 301000, "Nevermind", "1991-09", "Nirvana", "2002"));
+        ranking.add(recording(ranking, 180000, "Bleach", "1989", "Live at Reading", "1988"));
+
+        assertThat(ranking.toMatch()).isEqualTo(new RecordingMatch("Bleach", 1989, 180000, "Unknown"));
+    }
+
+    @Test
+    void treatsFullDatesAsLiveAndSkipsUnparseableDates() {
+        Ranking ranking = ranker.newRanking();
+        ranking.add(recording(ranking, 301000,
+            "Nevermind", "1991-09-24",
+            "Nevermind (Deluxe)", "Sept 1991",
+            "Nevermind (Vinyl)", null,
+            "Nevermind (Remastered)", "2011"));
+
+        assertThat(ranking.toMatch()).isEqualTo(new RecordingMatch("Nevermind (Remastered)", 2011, 301000, "Unknown"));
+    }
+
+    @Test
+    void fallsBackToTheFirstRecordingAndReleaseWithoutDates() {
+        Ranking ranking = ranker.newRanking();
+        RecordingScore undated = ranking.newRecording();
+        undated.resetReleases();
+        undated.release("MTV Unplugged", "circa 1994");
+        undated.release("Nevermind", null);
+        ranking.add(undated);
+        RecordingScore noReleases = ranking.newRecording();
+        noReleases.length(301000);
+        noReleases.resetReleases();
+        ranking.add(noReleases);
+
+        assertThat(ranking.toMatch()).isEqualTo(new RecordingMatch("MTV Unplugged", null, null, "Unknown"));
+    }
+
+    @Test
+    void fallsBackToTheFirstTaggedRecordingForGenre() {
+        Ranking ranking = ranker.newRanking();
+        RecordingScore selected = recording(ranking, 301000, "Nevermind", "1991");
+        selected.resetTags();
+        ranking.add(selected);
+        RecordingScore tagged = recording(ranking, 0, "Live at Reading", "2009");
+        tagged.resetTags();
+        tagged.tag("grunge");
+        tagged.tag("rock");
+        ranking.add(tagged);
+        RecordingScore alsoTagged = ranking.newRecording();
+        alsoTagged.tag("alternative rock");
+        ranking.add(alsoTagged);
+
+        assertThat(ranking.toMatch()).isEqualTo(new RecordingMatch("Nevermind", 1991, 301000, "grunge"));
+    }
+
+    @Test
+    void rejectsATagWithoutAName() {
+        Ranking ranking = ranker.newRanking();
+        RecordingScore recording = ranking.newRecording();
+        recording.tag(null);
+        ranking.add(recording);
+
+        assertThatIllegalStateException().isThrownBy(ranking::toMatch);
+    }
+
+    @Test
+    void appliesCustomLiveRules() {
+        RecordingRanker unpluggedIsLive = new RecordingRanker(List.of(RecordingRanker.titleContains("Unplugged")));
+        Ranking ranking = unpluggedIsLive.newRanking();
+        ranking.add(recording(ranking, 0, "MTV Unplugged in New York", "1994", "Live at Reading", "2009"));
+
+        assertThat(ranking.toMatch().album()).isEqualTo("Live at Reading");
+    }
+
+    // titlesAndDates alternates release title and date
+    private static RecordingScore recording(Ranking ranking, int length, String... titlesAndDates) {
+        RecordingScore recording = ranking.newRecording();
+        recording.length(length);
+        recording.resetReleases();
+        for (int i = 0; i < titlesAndDates.length; i += 2) {
+            recording.release(titlesAndDates[i], titlesAndDates[i + 1]);
+        }
+        return recording;
+    }
+}
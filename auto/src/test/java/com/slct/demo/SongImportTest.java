@@ -0,0 +1,149 @@
+package com.slct.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.slct.demo.SongImport.CopyBuffer;
+import com.slct.demo.SongImport.CsvSource;
+import com.slct.demo.SongImport.JsonLinesSource;
+import com.slct.demo.SongImport.SongSource;
+
+// Parsing and validation only, the COPY and merge need a database
+class SongImportTest {
+
+    @Test
+    void readsCsvColumnsInHeaderOrder() throws IOException {
+        assertThat(read(new CsvSource(new StringReader("""
+            genre,artist,comment,title,duration_ms
+            grunge,Nirvana,ignored,Lithium,257000
+            ,Nirvana,,Breed
+            """))))
+            .containsExactly(
+                song(2, "Lithium", "Nirvana", null, null, "257000", "grunge"),
+                song(3, "Breed", "Nirvana", null, null, null, null));
+    }
+
+    @Test
+    void readsQuotedCommasQuotesAndLineBreaks() throws IOException {
+        assertThat(read(new CsvSource(new StringReader(
+            "title,artist,album\n"
+                + "\"Smells Like \"\"Teen\"\" Spirit\",Nirvana,\"Nevermind, Deluxe\"\n"
+                + "\"Come as\nYou Are\",Nirvana,\"\"\n"
+                + "Lithium,Nirvana\n"))))
+            .containsExactly(
+                song(2, "Smells Like \"Teen\" Spirit", "Nirvana", "Nevermind, Deluxe", null, null, null),
+                song(3, "Come as\nYou Are", "Nirvana", null, null, null, null),
+                song(5, "Lithium", "Nirvana", null, null, null, null));
+    }
+
+    // A bare \r ends a record too, the character read after it starts the next one
+    @Test
+    void endsRecordsAtAnyLineBreak() throws IOException {
+        assertThat(read(new CsvSource(new StringReader("title,artist\rLithium,Nirvana\r\n\r\rBreed,Nirvana\r"))))
+            .containsExactly(
+                song(2, "Lithium", "Nirvana", null, null, null, null),
+                song(5, "Breed", "Nirvana", null, null, null, null));
+    }
+
+    @Test
+    void rejectsCsvWithoutTitleAndArtistColumns() {
+        assertThatIOException().isThrownBy(() -> new CsvSource(new StringReader("")));
+        assertThatIOException().isThrownBy(() -> new CsvSource(new StringReader("name,artist\nLithium,Nirvana\n")));
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuotedField() throws IOException {
+        CsvSource source = new CsvSource(new StringReader("title,artist\n\"Lithium,Nirvana\n"));
+
+        assertThatIOException().isThrownBy(source::next).withMessageContaining("line 2");
+    }
+
+    @Test
+    void readsJsonLinesByKey() throws IOException {
+        assertThat(read(new JsonLinesSource(new StringReader("""
+            {"artist":"Nirvana","title":"Lithium","year":1991,"duration_ms":257000,"genre":null,"etag":"x"}
+
+            {"title":"Breed","artist":"Nirvana","tags":{"genre":"grunge"},"album":"Nevermind"}
+            """))))
+            .containsExactly(
+                song(1, "Lithium", "Nirvana", null, "1991", "257000", null),
+                song(3, "Breed", "Nirvana", "Nevermind", null, null, null));
+    }
+
+    // Malformed lines come back without a title, so the import counts them as skipped
+    @Test
+    void readsMalformedJsonLinesAsEmptySongs() throws IOException {
+        assertThat(read(new JsonLinesSource(new StringReader("""
+            not json
+            ["Lithium","Nirvana"]
+            {"title":"Lithium","artist":
+            {"title":"Lithium","artist":"Nirvana"}
+            """))))
+            .containsExactly(
+                song(1, null, null, null, null, null, null),
+                song(2, null, null, null, null, null, null),
+                song(3, null, null, null, null, null, null),
+                song(4, "Lithium", "Nirvana", null, null, null, null));
+    }
+
+    @Test
+    void buffersSongsAsQuotedCopyRows() {
+        CopyBuffer copy = new CopyBuffer();
+
+        assertThat(copy.add(2, new String[] { "Smells Like \"Teen\" Spirit", "Nirvana", null, " 1991 ", null, "grunge" }))
+            .isTrue();
+        assertThat(copy.add(7, new String[] { "Come as\nYou Are", "Nirvana", "Nevermind, Deluxe", null, "219000", null }))
+            .isTrue();
+
+        assertThat(copy).hasToString("""
+            2,"Smells Like ""Teen"" Spirit","Nirvana",,1991,,"grunge"
+            7,"Come as
+            You Are","Nirvana","Nevermind, Deluxe",,219000,
+            """);
+    }
+
+    @Test
+    void skipsSongsThePostgresColumnsWouldReject() {
+        CopyBuffer copy = new CopyBuffer();
+
+        assertThat(copy.add(1, new String[] { null, "Nirvana", null, null, null, null })).isFalse();
+        assertThat(copy.add(2, new String[] { "Lithium", " ", null, null, null, null })).isFalse();
+        assertThat(copy.add(3, new String[] { "Lithium", "Nirvana", null, "1991-09", null, null })).isFalse();
+        assertThat(copy.add(4, new String[] { "Lithium", "Nirvana", null, null, "4:17", null })).isFalse();
+        assertThat(copy.add(5, new String[] { "Lithium", "Nirvana", "Never\0mind", null, null, null })).isFalse();
+        assertThat(copy.add(6, new String[] { "Lithium", "Nirvana", null, null, null, "grun\0ge" })).isFalse();
+        assertThat(copy.add(7, new String[] { "x".repeat(256), "Nirvana", null, null, null, null })).isFalse();
+        assertThat(copy).hasToString("");
+
+        // Lengths are in code points, like VARCHAR(255)
+        String longest = "\uD83C\uDFB8".repeat(255);
+        assertThat(copy.add(8, new String[] { longest, "Nirvana", null, null, null, null })).isTrue();
+        assertThat(copy).hasToString("8,\"" + longest + "\",\"Nirvana\",,,,\n");
+    }
+
+    private static String[] song(long line, String... values) {
+        String[] song = new String[values.length + 1];
+        song[0] = Long.toString(line);
+        System.arraycopy(values, 0, song, 1, values.length);
+        return song;
+    }
+
+    // Each song prefixed with its line
+    private static List<String[]> read(SongSource source) throws IOException {
+        List<String[]> songs = new ArrayList<>();
+        try (source) {
+            String[] song;
+            while ((song = source.next()) != null) {
+                songs.add(song(source.line(), song));
+            }
+        }
+        return songs;
+    }
+}
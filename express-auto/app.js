@@ -214,7 +214,7 @@ async function persistSong(title, artist, songData) {
   const query = `
     INSERT INTO songs (title, artist, album, year, duration_ms, genre)
     VALUES ($1, $2, $3, $4, $5, $6)
-    ON CONFLICT (title, artist) DO NOTHING
+    ON CONFLICT DO NOTHING
   `
   await pool.query(query, [title, artist, songData.album, songData.year, songData.duration_ms, songData.genre])
 }
@@ -320,7 +320,7 @@ async fn insert_song(
             opentelemetry::KeyValue::new(DB_SYSTEM_NAME, "postgresql"),
             opentelemetry::KeyValue::new(
                 DB_QUERY_TEXT,
-                "INSERT INTO songs (title, artist, album, year, duration_ms, genre) VALUES ($1, $2, $3, $4, $5, $6) ON CONFLICT (title, artist) DO NOTHING",
+                "INSERT INTO songs (title, artist, album, year, duration_ms, genre) VALUES ($1, $2, $3, $4, $5, $6) ON CONFLICT DO NOTHING",
             ),
             opentelemetry::KeyValue::new(DB_OPERATION_NAME, "INSERT"),
         ])
@@ -340,7 +340,7 @@ async fn insert_song(
 
     match client
         .execute(
-            "INSERT INTO songs (title, artist, album, year, duration_ms, genre) VALUES ($1, $2, $3, $4, $5, $6) ON CONFLICT (title, artist) DO NOTHING",
+            "INSERT INTO songs (title, artist, album, year, duration_ms, genre) VALUES ($1, $2, $3, $4, $5, $6) ON CONFLICT DO NOTHING",
             &[&title, &artist, &album, &year, &duration_ms, &genre],
         )
         .await
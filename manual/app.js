@@ -292,7 +292,7 @@ async function persistSong(title, artist, songData, parentSpan) {
   const query = `
     INSERT INTO songs (title, artist, album, year, duration_ms, genre)
     VALUES ($1, $2, $3, $4, $5, $6)
-    ON CONFLICT (title, artist) DO NOTHING
+    ON CONFLICT DO NOTHING
   `
 
   const dbSpan = tracer.startSpan('INSERT songs_db.songs', {
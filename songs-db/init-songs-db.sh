@@ -1,6 +1,9 @@
 #!/bin/bash
 set -e
 
+# Fresh volumes only. Everything added since (lookup_key, the songs_changed trigger) is in
+# migrate-songs-db.sql, which runs right after this and again on every start, so existing
+# volumes get it too.
 psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-EOSQL
     CREATE TABLE IF NOT EXISTS songs (
         id BIGSERIAL PRIMARY KEY,
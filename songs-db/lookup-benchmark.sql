@@ -0,0 +1,39 @@
+-- Compares the old LOWER(...) song lookup with the lookup_key index on a scratch copy of
+-- the songs table. Run against a disposable database:
+--
+--   docker compose exec -T songs-db psql -U postgres -d songs_db -v rows=5000000 < songs-db/lookup-benchmark.sql
+--
+-- With 5,000,000 rows (1.5 GB) on PostgreSQL 17, one core and shared_buffers=256MB, four runs:
+--   LOWER(title), LOWER(artist)   parallel seq scan   2,771 - 3,455 ms
+--   lookup_key                    unique index scan   0.045 - 0.080 ms
+--
+\if :{?rows}
+\else
+\set rows 5000000
+\endif
+
+DROP TABLE IF EXISTS songs_bench;
+CREATE TABLE songs_bench (LIKE songs INCLUDING ALL);
+
+-- lookup_key is generated, INCLUDING ALL copies the expression
+INSERT INTO songs_bench (title, artist, album, year, duration_ms, genre)
+SELECT 'Song ' || i, 'Artist ' || (i % 50000), 'Album ' || (i % 200000), 1960 + (i % 60), 180000 + (i % 120000), 'Rock'
+FROM generate_series(1, :rows) AS i;
+
+ANALYZE songs_bench;
+
+\timing on
+
+-- Before: LOWER() on both columns cannot use unique_title_artist, so this is a sequential scan
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM songs_bench
+WHERE LOWER(title) = LOWER('Song 4242424') AND LOWER(artist) = LOWER('Artist 42424');
+
+-- After: equality on the normalized key is a single unique index probe
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, title, artist, album, year, duration_ms, genre FROM songs_bench
+WHERE lookup_key = 'song 4242424' || chr(31) || 'artist 42424';
+
+\timing off
+
+DROP TABLE songs_bench;
@@ -0,0 +1,48 @@
+-- Brings a songs table created by any earlier init-songs-db.sh up to date. Safe to run any
+-- number of times: compose runs it on every start through songs-db-migrate, and a fresh
+-- volume runs it once more from docker-entrypoint-initdb.d right after the init script.
+
+-- lookup_key is computed by PostgreSQL, so every service sharing the table can keep inserting
+-- plain title and artist. The builtin pg_c_utf8 collation makes lower() a per-code-point
+-- Unicode simple case mapping whatever the server locale, the same one SongKey applies in Java.
+DO $$
+BEGIN
+    -- An earlier version stored a key computed by the application
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'songs' AND column_name = 'lookup_key' AND is_generated = 'NEVER') THEN
+        ALTER TABLE songs DROP COLUMN lookup_key;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = 'songs' AND column_name = 'lookup_key') THEN
+        -- Songs that only differ in case were stored twice before; keep the latest fetch
+        DELETE FROM songs a USING songs b
+        WHERE lower(a.title COLLATE "pg_c_utf8") = lower(b.title COLLATE "pg_c_utf8")
+          AND lower(a.artist COLLATE "pg_c_utf8") = lower(b.artist COLLATE "pg_c_utf8")
+          AND (a.cached_at, a.id) < (b.cached_at, b.id);
+
+        ALTER TABLE songs
+            ADD COLUMN lookup_key VARCHAR(511) GENERATED ALWAYS AS
+                (lower(title COLLATE "pg_c_utf8") || chr(31) || lower(artist COLLATE "pg_c_utf8")) STORED,
+            ADD CONSTRAINT unique_lookup_key UNIQUE (lookup_key);
+    END IF;
+END
+$$;
+
+-- The catalog catch-up, its max(cached_at) watermark and the invalidation listener's reconcile
+-- after a reconnect all look rows up by cached_at
+CREATE INDEX IF NOT EXISTS songs_cached_at_idx ON songs (cached_at);
+
+-- Tells every replica which song changed, so it can drop its cached copy. The payload is
+-- cached_at in epoch microseconds and the lookup key, separated by a space.
+CREATE OR REPLACE FUNCTION notify_song_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('songs_changed',
+        (extract(epoch FROM NEW.cached_at) * 1000000)::bigint || ' ' || NEW.lookup_key);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER songs_changed
+    AFTER INSERT OR UPDATE ON songs
+    FOR EACH ROW EXECUTE FUNCTION notify_song_changed();
@@ -2,6 +2,8 @@
 
 package dev.jcosta.semconv;
 
+import io.opentelemetry.api.common.AttributeKey;
+
 public final class Attributes {
     /**
      * <p>The source code file name that identifies the code unit as uniquely as possible (preferably an absolute file path). This attribute MUST NOT be used on the Profile signal since the data is already captured in 'message Function'. This constraint is imposed to prevent redundancy and maintain data integrity.</p>
@@ -11,6 +13,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String CODE_FILE_PATH = "code.file.path";
+    public static final AttributeKey<String> CODE_FILE_PATH_KEY = AttributeKey.stringKey(CODE_FILE_PATH);
 
     /**
      * <p>The method or function fully-qualified name without arguments. The value should fit the natural representation of the language runtime, which is also likely the same used within <c>code.stacktrace</c> attribute value. This attribute MUST NOT be used on the Profile signal since the data is already captured in 'message Function'. This constraint is imposed to prevent redundancy and maintain data integrity.</p>
@@ -37,6 +40,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String CODE_FUNCTION_NAME = "code.function.name";
+    public static final AttributeKey<String> CODE_FUNCTION_NAME_KEY = AttributeKey.stringKey(CODE_FUNCTION_NAME);
 
     /**
      * <p>The line number in <c>code.file.path</c> best representing the operation. It SHOULD point within the code unit named in <c>code.function.name</c>. This attribute MUST NOT be used on the Profile signal since the data is already captured in 'message Line'. This constraint is imposed to prevent redundancy and maintain data integrity.</p>
@@ -46,6 +50,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String CODE_LINE_NUMBER = "code.line.number";
+    public static final AttributeKey<Long> CODE_LINE_NUMBER_KEY = AttributeKey.longKey(CODE_LINE_NUMBER);
 
     /**
      * <p>A stacktrace as a string in the natural representation for the language runtime. The representation is identical to <a href="/docs/exceptions/exceptions-spans.md#stacktrace-representation"><c>exception.stacktrace</c></a>. This attribute MUST NOT be used on the Profile signal since the data is already captured in 'message Location'. This constraint is imposed to prevent redundancy and maintain data integrity.</p>
@@ -55,6 +60,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String CODE_STACKTRACE = "code.stacktrace";
+    public static final AttributeKey<String> CODE_STACKTRACE_KEY = AttributeKey.stringKey(CODE_STACKTRACE);
 
     /**
      * <p>The name of the album containing the song.</p>
@@ -67,6 +73,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String MEDIA_ALBUM_NAME = "media.album.name";
+    public static final AttributeKey<String> MEDIA_ALBUM_NAME_KEY = AttributeKey.stringKey(MEDIA_ALBUM_NAME);
 
     /**
      * <p>The name of the artist performing the song.</p>
@@ -79,6 +86,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String MEDIA_ARTIST_NAME = "media.artist.name";
+    public static final AttributeKey<String> MEDIA_ARTIST_NAME_KEY = AttributeKey.stringKey(MEDIA_ARTIST_NAME);
 
     /**
      * <p>The name/title of the song being queried.</p>
@@ -93,6 +101,8 @@ public final class Attributes {
      */
     @Deprecated
     public static final String MEDIA_SONG = "media.song";
+    @Deprecated
+    public static final AttributeKey<String> MEDIA_SONG_KEY = AttributeKey.stringKey(MEDIA_SONG);
 
     /**
      * <p>The duration of the song in milliseconds.</p>
@@ -105,6 +115,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String MEDIA_SONG_DURATION_MS = "media.song.duration_ms";
+    public static final AttributeKey<Long> MEDIA_SONG_DURATION_MS_KEY = AttributeKey.longKey(MEDIA_SONG_DURATION_MS);
 
     /**
      * <p>The musical genre of the song.</p>
@@ -118,6 +129,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String MEDIA_SONG_GENRE = "media.song.genre";
+    public static final AttributeKey<String> MEDIA_SONG_GENRE_KEY = AttributeKey.stringKey(MEDIA_SONG_GENRE);
 
     /**
      * <p>The name/title of the song being queried.</p>
@@ -130,6 +142,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String MEDIA_SONG_NAME = "media.song.name";
+    public static final AttributeKey<String> MEDIA_SONG_NAME_KEY = AttributeKey.stringKey(MEDIA_SONG_NAME);
 
     /**
      * <p>The release year of the song.</p>
@@ -142,6 +155,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String MEDIA_SONG_YEAR = "media.song.year";
+    public static final AttributeKey<Long> MEDIA_SONG_YEAR_KEY = AttributeKey.longKey(MEDIA_SONG_YEAR);
 
     /**
      * <p>Unique identifier of the user.</p>
@@ -151,6 +165,7 @@ public final class Attributes {
      * </ul>
      */
     public static final String USER_ID = "user.id";
+    public static final AttributeKey<String> USER_ID_KEY = AttributeKey.stringKey(USER_ID);
 
     /**
      * <p>The type of subscription the user has.</p>
@@ -163,4 +178,5 @@ public final class Attributes {
      * </ul>
      */
     public static final String USER_SUBSCRIPTION_TYPE = "user.subscription.type";
+    public static final AttributeKey<String> USER_SUBSCRIPTION_TYPE_KEY = AttributeKey.stringKey(USER_SUBSCRIPTION_TYPE);
 }